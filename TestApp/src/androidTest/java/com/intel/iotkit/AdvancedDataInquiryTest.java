@@ -23,14 +23,21 @@
 
 package com.intel.iotkit;
 
+import android.util.JsonReader;
+
 import com.intel.iotkitlib.AdvancedDataInquiry;
 import com.intel.iotkitlib.RequestStatusHandler;
 import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.http.JsonResponseDecoder;
+import com.intel.iotkitlib.http.RequestHandle;
 import com.intel.iotkitlib.models.AttributeFilter;
 import com.intel.iotkitlib.utils.Utilities;
 
 import org.json.JSONException;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 public class AdvancedDataInquiryTest extends ApplicationTest {
     private boolean serverResponse = false;
 
@@ -102,4 +109,65 @@ public class AdvancedDataInquiryTest extends ApplicationTest {
         assertEquals(true, response.getStatus());
         waitForServerResponse(objAdvancedDataEnquiry);
     }
+
+    public void testAdvancedDataEnquiryStreamed() throws JSONException {
+        AdvancedDataInquiry objAdvancedDataEnquiry = new AdvancedDataInquiry(new RequestStatusHandler() {
+            @Override
+            public void readResponse(CloudResponse response) {
+                assertEquals(200, response.getCode());
+                assertNotNull(response.getDecodedResponse());
+                serverResponse = true;
+            }
+        });
+
+        objAdvancedDataEnquiry.addGatewayId(deviceName);
+        objAdvancedDataEnquiry.addDeviceId(deviceName);
+        objAdvancedDataEnquiry.addComponentId(Utilities.getSensorMatch(deviceComponentName).getValue().toString());
+
+        objAdvancedDataEnquiry.setStartTimestamp(0L);
+        objAdvancedDataEnquiry.setEndTimestamp(System.currentTimeMillis());
+        //count the top level fields of the report without reading it as String
+        CloudResponse response = objAdvancedDataEnquiry.request(new JsonResponseDecoder() {
+            @Override
+            public Object decode(JsonReader reader) throws IOException {
+                int fields = 0;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    reader.skipValue();
+                    fields++;
+                }
+                reader.endObject();
+                return fields;
+            }
+        });
+        assertEquals(true, response.getStatus());
+        waitForServerResponse(objAdvancedDataEnquiry);
+    }
+
+    public void testAdvancedDataEnquiryCancelled() throws JSONException, InterruptedException {
+        AdvancedDataInquiry objAdvancedDataEnquiry = new AdvancedDataInquiry(new RequestStatusHandler() {
+            @Override
+            public void readResponse(CloudResponse response) {
+                //the filters changed, the query is not needed any more
+                assertEquals(RequestHandle.ERR_CANCELLED, response.getResponse());
+            }
+        });
+
+        objAdvancedDataEnquiry.addGatewayId(deviceName);
+        objAdvancedDataEnquiry.addDeviceId(deviceName);
+        objAdvancedDataEnquiry.addComponentId(Utilities.getSensorMatch(deviceComponentName).getValue().toString());
+
+        objAdvancedDataEnquiry.setStartTimestamp(0L);
+        objAdvancedDataEnquiry.setEndTimestamp(System.currentTimeMillis());
+        CloudResponse response = objAdvancedDataEnquiry.request();
+        assertEquals(true, response.getStatus());
+        RequestHandle handle = response.getRequestHandle();
+        assertNotNull(handle);
+        assertEquals(true, handle.cancel());
+        assertEquals(true, handle.isCancelled());
+        CloudResponse cancelled = handle.await(1, TimeUnit.SECONDS);
+        assertEquals(0, cancelled.getCode());
+        assertEquals(RequestHandle.ERR_CANCELLED, cancelled.getResponse());
+    }
 }
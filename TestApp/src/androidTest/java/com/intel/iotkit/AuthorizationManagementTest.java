@@ -22,9 +22,17 @@
  */
 package com.intel.iotkit;
 
+import com.intel.iotkitlib.AuthTokenManager;
 import com.intel.iotkitlib.AuthorizationManagement;
 import com.intel.iotkitlib.RequestStatusHandler;
 import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.utils.SessionState;
+import com.intel.iotkitlib.utils.IotKit;
+import com.intel.iotkitlib.utils.Utilities;
+
+import org.apache.http.NameValuePair;
+
+import java.util.List;
 
 
 public class AuthorizationManagementTest extends ApplicationTest {
@@ -85,4 +93,62 @@ public class AuthorizationManagementTest extends ApplicationTest {
         waitForServerResponse(getToken);
     }
 
+    //the session values are loaded from, and written through to, the shared preferences
+    public void testSessionStateMatchesSharedPreferences() {
+        SessionState session = SessionState.getInstance();
+        assertTrue(session.isLoaded());
+        assertEquals(Utilities.sharedPreferences.getString("auth_token", ""), session.getAuthToken());
+        assertEquals(Utilities.sharedPreferences.getString("account_id", ""), session.getAccountId());
+        assertEquals(Utilities.sharedPreferences.getString("user_id", ""), session.getUserId());
+
+        String authToken = session.getAuthToken();
+        session.setAuthToken("session-state-test");
+        //the value is written on a background thread
+        Utilities.flushPreferences();
+        assertEquals("session-state-test", Utilities.sharedPreferences.getString("auth_token", ""));
+        session.setAuthToken(authToken);
+        Utilities.flushPreferences();
+        assertEquals(authToken, Utilities.sharedPreferences.getString("auth_token", ""));
+    }
+
+    //the headers are built once per token and replaced when the token changes, the public
+    //helper hands out a copy that may be extended
+    public void testBearerHeadersFollowTokenChange() {
+        SessionState session = SessionState.getInstance();
+        String authToken = session.getAuthToken();
+        List<NameValuePair> headers = session.getAuthTokenHeaders();
+        assertSame(headers, session.getAuthTokenHeaders());
+
+        session.setAuthToken("header-test");
+        List<NameValuePair> newHeaders = session.getAuthTokenHeaders();
+        assertNotSame(headers, newHeaders);
+        for (NameValuePair header : newHeaders) {
+            if (header.getName().equals(IotKit.HEADER_AUTHORIZATION)) {
+                assertEquals(IotKit.HEADER_AUTHORIZATION_BEARER + " header-test", header.getValue());
+            }
+        }
+        try {
+            newHeaders.clear();
+            fail("shared headers must not be modifiable");
+        } catch (UnsupportedOperationException uoe) {
+            //expected
+        }
+        List<NameValuePair> copy = Utilities.createBasicHeadersWithBearerToken();
+        assertEquals(newHeaders, copy);
+        Utilities.addHttpHeaders(copy, "X-Test", "header-test");
+        assertEquals(newHeaders.size() + 1, copy.size());
+        assertEquals(newHeaders, session.getAuthTokenHeaders());
+        session.setAuthToken(authToken);
+        Utilities.flushPreferences();
+    }
+
+    public void testAuthTokenManagerRefresh() {
+        AuthTokenManager tokenManager = new AuthTokenManager("intelpim@gmail.com", "Intel1234", null);
+        CloudResponse response = tokenManager.refresh();
+        tokenManager.stop();
+        assertEquals(200, response.getCode());
+        //the expiry of the new token is known once it is refreshed
+        assertTrue(tokenManager.getTokenExpiry() > System.currentTimeMillis());
+        assertEquals(tokenManager.getTokenExpiry(), SessionState.getInstance().getAuthTokenExpiry());
+    }
 }
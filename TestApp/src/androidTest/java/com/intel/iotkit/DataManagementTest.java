@@ -23,13 +23,22 @@
 package com.intel.iotkit;
 
 import com.intel.iotkitlib.DataManagement;
+import com.intel.iotkitlib.DataSubmitBuffer;
 import com.intel.iotkitlib.RequestStatusHandler;
+import com.intel.iotkitlib.RetrieveProgressHandler;
 import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.http.RetryPolicy;
+import com.intel.iotkitlib.models.Observation;
+import com.intel.iotkitlib.models.TimeSeries;
 import com.intel.iotkitlib.models.TimeSeriesData;
+import com.intel.iotkitlib.models.TimeSeriesResult;
 import com.intel.iotkitlib.utils.Utilities;
 
 import org.json.JSONException;
 
+import java.util.LinkedList;
+import java.util.List;
+
 
 public class DataManagementTest extends ApplicationTest {
     private boolean serverResponse = false;
@@ -56,6 +65,53 @@ public class DataManagementTest extends ApplicationTest {
         waitForServerResponse(dataManagement);
     }
 
+    public void testSubmitDataWithRetry() throws JSONException {
+        //sync mode, transient errors are retried up to three times
+        DataManagement dataManagement = new DataManagement();
+        dataManagement.setSubmitRetryPolicy(new RetryPolicy(3, 200, 2000, 0.5, new int[]{502, 503, 504}));
+        CloudResponse response = dataManagement.submitData(deviceComponentName,
+                getRandomValueWithInFifty().toString(), 25.0, 50.0, 100.0);
+        assertEquals(201, response.getCode());
+    }
+
+    public void testSubmitDataBatch() throws JSONException {
+        DataManagement dataManagement = new DataManagement(new RequestStatusHandler() {
+            @Override
+            public void readResponse(CloudResponse response) {
+                assertEquals(201, response.getCode());
+                serverResponse = true;
+            }
+        });
+        List<Observation> observations = new LinkedList<Observation>();
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            Observation observation = new Observation(deviceComponentName,
+                    getRandomValueWithInFifty().toString(), timestamp - (10 - i) * 100);
+            observation.setLocation(25.0, 50.0, 100.0);
+            observations.add(observation);
+        }
+        CloudResponse response = dataManagement.submitDataBatch(observations);
+        assertEquals(true, response.getStatus());
+        waitForServerResponse(dataManagement);
+    }
+
+    public void testDataSubmitBuffer() {
+        DataSubmitBuffer dataSubmitBuffer = new DataSubmitBuffer(5, 1000, 50,
+                DataSubmitBuffer.OverflowPolicy.DROP_OLDEST, new RequestStatusHandler() {
+            @Override
+            public void readResponse(CloudResponse response) {
+                assertEquals(201, response.getCode());
+                serverResponse = true;
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            assertEquals(true, dataSubmitBuffer.submitData(deviceComponentName,
+                    getRandomValueWithInFifty().toString(), 25.0, 50.0, 100.0));
+        }
+        waitForServerResponse(dataSubmitBuffer);
+        dataSubmitBuffer.close();
+    }
+
     public void testRetrieveData() throws JSONException {
         DataManagement dataManagement = new DataManagement(new RequestStatusHandler() {
             @Override
@@ -75,4 +131,54 @@ public class DataManagementTest extends ApplicationTest {
         assertEquals(true, response.getStatus());
         waitForServerResponse(dataManagement);
     }
+
+    public void testRetrieveTimeSeries() throws JSONException {
+        DataManagement dataManagement = new DataManagement(new RequestStatusHandler() {
+            @Override
+            public void readResponse(CloudResponse response) {
+                assertEquals(200, response.getCode());
+                TimeSeriesResult result = (TimeSeriesResult) response.getDecodedResponse();
+                assertNotNull(result);
+                for (TimeSeries series : result.getSeries()) {
+                    assertEquals(series.size(), series.getValues().length);
+                }
+                serverResponse = true;
+            }
+        });
+        TimeSeriesData retrieveData = new
+                TimeSeriesData(0L, System.currentTimeMillis());
+        retrieveData.addDeviceId(deviceName);
+        retrieveData.addComponentId(Utilities.getSensorMatch(deviceComponentName).getValue().toString());
+        CloudResponse response = dataManagement.retrieveTimeSeries(retrieveData);
+        assertEquals(true, response.getStatus());
+        waitForServerResponse(dataManagement);
+    }
+
+    public void testRetrieveTimeSeriesChunked() throws JSONException {
+        final int[] progressCalls = {0};
+        DataManagement dataManagement = new DataManagement(new RetrieveProgressHandler() {
+            @Override
+            public void onProgress(int completedChunks, int totalChunks) {
+                assertTrue(completedChunks <= totalChunks);
+                progressCalls[0]++;
+            }
+
+            @Override
+            public void readResponse(CloudResponse response) {
+                assertEquals(200, response.getCode());
+                assertTrue(response.getDecodedResponse() instanceof TimeSeriesResult);
+                assertTrue(progressCalls[0] > 0);
+                serverResponse = true;
+            }
+        });
+        //the last week, one chunk per day with the default settings
+        long now = System.currentTimeMillis();
+        TimeSeriesData retrieveData = new
+                TimeSeriesData(now - 7L * 24 * 60 * 60 * 1000, now);
+        retrieveData.addDeviceId(deviceName);
+        retrieveData.addComponentId(Utilities.getSensorMatch(deviceComponentName).getValue().toString());
+        CloudResponse response = dataManagement.retrieveTimeSeriesChunked(retrieveData);
+        assertEquals(true, response.getStatus());
+        waitForServerResponse(dataManagement);
+    }
 }
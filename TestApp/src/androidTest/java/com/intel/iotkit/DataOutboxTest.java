@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkit;
+
+import com.intel.iotkitlib.DataOutbox;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class DataOutboxTest extends ApplicationTest {
+    private static final String URL = "https://example.com/v1/api/data/device";
+    //small segments, so that the records span several segment files
+    private static final long SEGMENT_SIZE = 64;
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(getInstrumentation().getTargetContext().getCacheDir(),
+                "outbox-test-" + System.nanoTime());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            files[i].delete();
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    //records survive a reopen, acknowledged records are not sent again
+    public void testAppendRecoverAndReplay() throws Exception {
+        DataOutbox outbox = new DataOutbox(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 10; i++) {
+            outbox.append(URL, "{\"record\":" + i + "}");
+        }
+        outbox.close();
+
+        outbox = new DataOutbox(directory, SEGMENT_SIZE);
+        assertEquals(10, outbox.getPendingCount());
+        //the cloud takes three records and is then unreachable
+        RecordingSender sender = new RecordingSender(3);
+        outbox.replay(sender);
+        outbox.close();
+        assertEquals(Arrays.asList("{\"record\":0}", "{\"record\":1}", "{\"record\":2}"), sender.delivered);
+        assertEquals(7, outbox.getPendingCount());
+
+        outbox = new DataOutbox(directory, SEGMENT_SIZE);
+        assertEquals(7, outbox.getPendingCount());
+        sender = new RecordingSender(Integer.MAX_VALUE);
+        outbox.replay(sender);
+        outbox.close();
+        assertEquals(7, sender.delivered.size());
+        assertEquals("{\"record\":3}", sender.delivered.get(0));
+        assertEquals("{\"record\":9}", sender.delivered.get(6));
+        assertEquals(0, outbox.getPendingCount());
+
+        //nothing is left after everything was acknowledged
+        outbox = new DataOutbox(directory, SEGMENT_SIZE);
+        assertEquals(0, outbox.getPendingCount());
+        outbox.close();
+    }
+
+    //a corrupted record in an older segment does not take the records after it along
+    public void testRecoverSkipsCorruptedRecord() throws Exception {
+        DataOutbox outbox = new DataOutbox(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 10; i++) {
+            outbox.append(URL, "{\"record\":" + i + "}");
+        }
+        outbox.close();
+
+        File[] segments = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".seg");
+            }
+        });
+        Arrays.sort(segments);
+        assertTrue(segments.length > 1);
+        //flip the last payload byte of the first record
+        corruptByte(segments[0], recordLength(segments[0]) - 1);
+
+        outbox = new DataOutbox(directory, SEGMENT_SIZE);
+        assertEquals(9, outbox.getPendingCount());
+        RecordingSender sender = new RecordingSender(Integer.MAX_VALUE);
+        outbox.replay(sender);
+        outbox.close();
+        assertEquals(9, sender.delivered.size());
+        assertEquals("{\"record\":1}", sender.delivered.get(0));
+        assertEquals("{\"record\":9}", sender.delivered.get(8));
+    }
+
+    //rate limited or expired token requests are kept, other client errors are dropped
+    public void testReplayKeepsTransientFailures() throws Exception {
+        DataOutbox outbox = new DataOutbox(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 3; i++) {
+            outbox.append(URL, "{\"record\":" + i + "}");
+        }
+        int[] transientCodes = {401, 408, 429, 503};
+        for (int code : transientCodes) {
+            RecordingSender sender = new RecordingSender(0, code);
+            outbox.replay(sender);
+            outbox.close();
+            assertEquals(3, outbox.getPendingCount());
+            outbox = new DataOutbox(directory, SEGMENT_SIZE);
+        }
+        //the first record is rejected for good, the others are delivered
+        RecordingSender sender = new RecordingSender(Integer.MAX_VALUE, 0) {
+            @Override
+            public int send(String url, String body) {
+                return body.equals("{\"record\":0}") ? 400 : super.send(url, body);
+            }
+        };
+        outbox.replay(sender);
+        outbox.close();
+        assertEquals(Arrays.asList("{\"record\":1}", "{\"record\":2}"), sender.delivered);
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    private static int recordLength(File segment) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segment, "r");
+        try {
+            //length and crc32 header followed by the payload
+            return 12 + file.readInt();
+        } finally {
+            file.close();
+        }
+    }
+
+    private static void corruptByte(File segment, long position) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xff);
+        } finally {
+            file.close();
+        }
+    }
+
+    //accepts the first records, then answers with the failure code
+    private static class RecordingSender implements DataOutbox.Sender {
+        private final int accepted;
+        private final int failureCode;
+        final List<String> delivered = new ArrayList<String>();
+
+        //fails as an unreachable cloud
+        RecordingSender(int accepted) {
+            this(accepted, 0);
+        }
+
+        RecordingSender(int accepted, int failureCode) {
+            this.accepted = accepted;
+            this.failureCode = failureCode;
+        }
+
+        @Override
+        public int send(String url, String body) {
+            assertEquals(URL, url);
+            if (delivered.size() >= accepted) {
+                return failureCode;
+            }
+            delivered.add(body);
+            return 201;
+        }
+    }
+}
@@ -24,8 +24,15 @@ package com.intel.iotkit;
 
 import com.intel.iotkitlib.DeviceManagement;
 import com.intel.iotkitlib.RequestStatusHandler;
+import com.intel.iotkitlib.http.AbstractHttpTask;
+import com.intel.iotkitlib.http.CloudRequest;
 import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.http.HttpInterceptor;
+import com.intel.iotkitlib.http.HttpResponseCache;
+import com.intel.iotkitlib.http.RequestTimeouts;
+import com.intel.iotkitlib.http.UrlConnectionTransport;
 import com.intel.iotkitlib.models.Device;
+import com.intel.iotkitlib.utils.IotKit;
 import com.intel.iotkitlib.utils.Utilities;
 
 import org.json.JSONException;
@@ -116,6 +123,105 @@ public class DeviceManagementTest extends ApplicationTest {
         waitForServerResponse(objDevice);
     }
 
+    public void testGetDeviceListConcurrently() {
+        final int[] responses = {0};
+        final int[] requests = {0};
+        HttpInterceptor interceptor = new HttpInterceptor() {
+            @Override
+            public void onRequest(CloudRequest request) {
+                synchronized (requests) {
+                    requests[0]++;
+                }
+            }
+
+            @Override
+            public CloudResponse onResponse(CloudRequest request, CloudResponse response) {
+                return response;
+            }
+
+            @Override
+            public void onError(CloudRequest request, Exception error) {
+            }
+        };
+        IotKit.getInstance().addInterceptor(interceptor);
+        try {
+            DeviceManagement objDevice = new DeviceManagement(new RequestStatusHandler() {
+                @Override
+                public void readResponse(CloudResponse response) {
+                    assertEquals(200, response.getCode());
+                    if (++responses[0] == 2) {
+                        serverResponse = true;
+                    }
+                }
+            });
+            assertEquals(true, objDevice.getDeviceList().getStatus());
+            assertEquals(true, objDevice.getDeviceList().getStatus());
+            waitForServerResponse(objDevice);
+        } finally {
+            IotKit.getInstance().removeInterceptor(interceptor);
+        }
+        //both requests are answered by the same network call
+        synchronized (requests) {
+            assertEquals(1, requests[0]);
+        }
+    }
+
+    public void testGetDeviceListUrlConnection() {
+        //sync mode, sent over HttpURLConnection instead of the Apache http client
+        AbstractHttpTask.setDefaultTransport(new UrlConnectionTransport());
+        try {
+            DeviceManagement objDevice = new DeviceManagement();
+            CloudResponse response = objDevice.getDeviceList();
+            assertEquals(200, response.getCode());
+        } finally {
+            AbstractHttpTask.setDefaultTransport(null);
+        }
+    }
+
+    public void testGetDeviceListIntercepted() {
+        //sync mode, the interceptor sees the request and its response
+        final int[] calls = {0, 0, 0};
+        HttpInterceptor interceptor = new HttpInterceptor() {
+            @Override
+            public void onRequest(CloudRequest request) {
+                calls[0]++;
+                request.setAttribute("sent", System.currentTimeMillis());
+            }
+
+            @Override
+            public CloudResponse onResponse(CloudRequest request, CloudResponse response) {
+                calls[1]++;
+                assertNotNull(request.getAttribute("sent"));
+                return response;
+            }
+
+            @Override
+            public void onError(CloudRequest request, Exception error) {
+                calls[2]++;
+            }
+        };
+        IotKit.getInstance().addInterceptor(interceptor);
+        try {
+            DeviceManagement objDevice = new DeviceManagement();
+            CloudResponse response = objDevice.getDeviceList();
+            assertEquals(200, response.getCode());
+            assertEquals(1, calls[0]);
+            assertEquals(1, calls[1]);
+            assertEquals(0, calls[2]);
+        } finally {
+            IotKit.getInstance().removeInterceptor(interceptor);
+        }
+    }
+
+    public void testGetDeviceListDeadline() {
+        //sync mode, the request cannot be answered within 1 ms and is aborted
+        DeviceManagement objDevice = new DeviceManagement();
+        objDevice.setTimeouts(new RequestTimeouts(15000, 30000, 1));
+        CloudResponse response = objDevice.getDeviceList();
+        assertEquals(0, response.getCode());
+        assertEquals(RequestTimeouts.ERR_DEADLINE_EXCEEDED, response.getResponse());
+    }
+
     public void testGetMyDeviceInfo() {
         DeviceManagement objDevice = new DeviceManagement(new RequestStatusHandler() {
             @Override
@@ -220,4 +326,42 @@ public class DeviceManagementTest extends ApplicationTest {
         assertEquals(true, response.getStatus());
         waitForServerResponse(objDevice);
     }
+
+    public void testGetAllTagsCached() {
+        //sync mode, the second request is answered from the response cache
+        final int[] requests = {0};
+        HttpInterceptor interceptor = new HttpInterceptor() {
+            @Override
+            public void onRequest(CloudRequest request) {
+                synchronized (requests) {
+                    requests[0]++;
+                }
+            }
+
+            @Override
+            public CloudResponse onResponse(CloudRequest request, CloudResponse response) {
+                return response;
+            }
+
+            @Override
+            public void onError(CloudRequest request, Exception error) {
+            }
+        };
+        HttpResponseCache.clear();
+        IotKit.getInstance().addInterceptor(interceptor);
+        try {
+            DeviceManagement objDevice = new DeviceManagement();
+            CloudResponse first = objDevice.getAllTags();
+            assertEquals(200, first.getCode());
+            CloudResponse second = objDevice.getAllTags();
+            assertEquals(200, second.getCode());
+            assertEquals(first.getResponse(), second.getResponse());
+        } finally {
+            IotKit.getInstance().removeInterceptor(interceptor);
+        }
+        //only the first request went to the cloud
+        synchronized (requests) {
+            assertEquals(1, requests[0]);
+        }
+    }
 }
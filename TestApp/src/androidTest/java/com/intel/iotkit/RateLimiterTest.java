@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkit;
+
+import com.intel.iotkitlib.http.RateLimiter;
+import com.intel.iotkitlib.utils.IotKit;
+
+
+public class RateLimiterTest extends ApplicationTest {
+
+    //the burst is sent right away, then the requests are spread at the configured rate
+    public void testReserveSpreadsRequests() {
+        RateLimiter rateLimiter = new RateLimiter("test", 10, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.reserve());
+        }
+        long wait = rateLimiter.reserve();
+        assertTrue("wait " + wait, wait > 0 && wait <= 100);
+        //the next request waits behind the one that is already promised the next token
+        long nextWait = rateLimiter.reserve();
+        assertTrue("wait " + nextWait, nextWait > 100 && nextWait <= 200);
+    }
+
+    //a token given back by a request that was not sent can be used by the next one
+    public void testReleaseReturnsToken() {
+        RateLimiter rateLimiter = new RateLimiter("test", 1, 1);
+        assertEquals(0, rateLimiter.reserve());
+        rateLimiter.release();
+        assertEquals(0, rateLimiter.reserve());
+        assertTrue(rateLimiter.reserve() > 0);
+        //never more than the burst
+        rateLimiter.release();
+        rateLimiter.release();
+        rateLimiter.release();
+        assertEquals(0, rateLimiter.reserve());
+        assertTrue(rateLimiter.reserve() > 0);
+    }
+
+    public void testAcquireWaitsForToken() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter("test", 20, 1);
+        long start = System.currentTimeMillis();
+        rateLimiter.acquire();
+        rateLimiter.acquire();
+        rateLimiter.acquire();
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("elapsed " + elapsed, elapsed >= 90);
+    }
+
+    //token requests never wait behind a burst of management calls
+    public void testAuthTokenNotRateLimited() {
+        IotKit iotKit = IotKit.getInstance();
+        assertNull(iotKit.getRateLimiter(iotKit.prepareUrl(iotKit.newAuthToken, null)));
+        assertNull(iotKit.getRateLimiter(iotKit.prepareUrl(iotKit.authTokenInfo, null)));
+        RateLimiter management = iotKit.getRateLimiter(iotKit.prepareUrl(iotKit.createAnAccount, null));
+        assertNotNull(management);
+        assertEquals(RateLimiter.GROUP_MANAGEMENT, management.getGroup());
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkit;
+
+import android.util.JsonReader;
+
+import com.intel.iotkitlib.http.CloudRequest;
+import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.http.HttpGetTask;
+import com.intel.iotkitlib.http.HttpInterceptor;
+import com.intel.iotkitlib.http.HttpTransport;
+import com.intel.iotkitlib.http.JsonResponseDecoder;
+import com.intel.iotkitlib.http.RetryPolicy;
+import com.intel.iotkitlib.http.TransportResponse;
+import com.intel.iotkitlib.utils.IotKit;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class RetryPolicyTest extends ApplicationTest {
+    //not under the configured host, so the request is neither cached nor sent to the cloud
+    private static final String URL = "http://localhost/retry-policy-test";
+
+    //the wait doubles from the initial backoff up to the maximum, until attempts run out
+    public void testBackoffBounds() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, 0, new int[]{503});
+        assertEquals(100, policy.getBackoff(1, null));
+        assertEquals(200, policy.getBackoff(2, null));
+        assertEquals(800, policy.getBackoff(4, null));
+        assertEquals(1000, policy.getBackoff(5, null));
+        assertEquals(1000, policy.getBackoff(9, null));
+        assertEquals(-1, policy.getBackoff(10, null));
+        assertTrue(policy.isRetryable(503));
+        assertFalse(policy.isRetryable(500));
+        assertEquals(-1, RetryPolicy.NONE.getBackoff(1, null));
+    }
+
+    //up to the jitter fraction is taken off the wait at random
+    public void testBackoffJitter() {
+        RetryPolicy policy = new RetryPolicy(3, 1000, 1000, 0.5, new int[]{503});
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 200; i++) {
+            long backoff = policy.getBackoff(1, null);
+            assertTrue("backoff " + backoff, backoff >= 500 && backoff <= 1000);
+            min = Math.min(min, backoff);
+            max = Math.max(max, backoff);
+        }
+        assertTrue(min < max);
+    }
+
+    //a Retry-After beyond the maximum backoff ends the retries, a shorter one is honoured
+    public void testRetryAfter() {
+        FakeTransport transport = new FakeTransport(503, "60", "");
+        assertEquals(503, send(transport, null).getCode());
+        assertEquals(1, transport.requests);
+
+        transport = new FakeTransport(503, "0", "");
+        assertEquals(503, send(transport, null).getCode());
+        assertEquals(3, transport.requests);
+    }
+
+    //a body the decoder cannot parse is not a transient error
+    public void testMalformedBodyNotRetried() {
+        FakeTransport transport = new FakeTransport(200, null, "{not json");
+        CloudResponse response = send(transport, new JsonResponseDecoder() {
+            @Override
+            public Object decode(JsonReader reader) throws IOException {
+                reader.beginObject();
+                reader.nextName();
+                return null;
+            }
+        });
+        assertEquals(0, response.getCode());
+        assertEquals(JsonResponseDecoder.ERR_DECODE, response.getResponse());
+        assertFalse(response.isNetworkFailure());
+        assertEquals(1, transport.requests);
+    }
+
+    //only the interceptors whose onRequest ran are unwound, and a failing onResponse fails the request
+    public void testInterceptorFailureUnwinds() {
+        RecordingInterceptor first = new RecordingInterceptor(false, false);
+        RecordingInterceptor failing = new RecordingInterceptor(true, false);
+        RecordingInterceptor last = new RecordingInterceptor(false, false);
+        IotKit.getInstance().addInterceptor(first);
+        IotKit.getInstance().addInterceptor(failing);
+        IotKit.getInstance().addInterceptor(last);
+        try {
+            FakeTransport transport = new FakeTransport(200, null, "");
+            assertFalse(send(transport, null).getStatus());
+            assertEquals(0, transport.requests);
+            assertEquals("request error", first.events.toString());
+            assertEquals("request", failing.events.toString());
+            assertEquals("", last.events.toString());
+        } finally {
+            IotKit.getInstance().removeInterceptor(first);
+            IotKit.getInstance().removeInterceptor(failing);
+            IotKit.getInstance().removeInterceptor(last);
+        }
+
+        first = new RecordingInterceptor(false, false);
+        failing = new RecordingInterceptor(false, true);
+        last = new RecordingInterceptor(false, false);
+        IotKit.getInstance().addInterceptor(first);
+        IotKit.getInstance().addInterceptor(failing);
+        IotKit.getInstance().addInterceptor(last);
+        try {
+            FakeTransport transport = new FakeTransport(200, null, "");
+            assertFalse(send(transport, null).getStatus());
+            assertEquals(1, transport.requests);
+            assertEquals("request error", first.events.toString());
+            assertEquals("request response", failing.events.toString());
+            assertEquals("request response", last.events.toString());
+        } finally {
+            IotKit.getInstance().removeInterceptor(first);
+            IotKit.getInstance().removeInterceptor(failing);
+            IotKit.getInstance().removeInterceptor(last);
+        }
+    }
+
+    private static CloudResponse send(HttpTransport transport, JsonResponseDecoder decoder) {
+        HttpGetTask task = new HttpGetTask();
+        task.setTransport(transport);
+        task.setRetryPolicy(new RetryPolicy(3, 10, 1000, 0, new int[]{503}));
+        task.setResponseDecoder(decoder);
+        return task.doSync(URL);
+    }
+
+    //records the calls it gets, optionally failing in onRequest or onResponse
+    private static class RecordingInterceptor implements HttpInterceptor {
+        private final boolean failRequest;
+        private final boolean failResponse;
+        final StringBuilder events = new StringBuilder();
+
+        RecordingInterceptor(boolean failRequest, boolean failResponse) {
+            this.failRequest = failRequest;
+            this.failResponse = failResponse;
+        }
+
+        private void record(String event) {
+            events.append(events.length() == 0 ? "" : " ").append(event);
+        }
+
+        @Override
+        public void onRequest(CloudRequest request) {
+            record("request");
+            if (failRequest) {
+                throw new IllegalStateException("onRequest failed");
+            }
+        }
+
+        @Override
+        public CloudResponse onResponse(CloudRequest request, CloudResponse response) {
+            record("response");
+            if (failResponse) {
+                throw new IllegalStateException("onResponse failed");
+            }
+            return response;
+        }
+
+        @Override
+        public void onError(CloudRequest request, Exception error) {
+            record("error");
+        }
+    }
+
+    //answers every request with the same response and counts them
+    private static class FakeTransport implements HttpTransport {
+        private final int code;
+        private final String retryAfter;
+        private final String body;
+        int requests;
+
+        FakeTransport(int code, String retryAfter, String body) {
+            this.code = code;
+            this.retryAfter = retryAfter;
+            this.body = body;
+        }
+
+        @Override
+        public synchronized TransportResponse execute(CloudRequest request) throws IOException {
+            requests++;
+            List<NameValuePair> headers = new ArrayList<NameValuePair>();
+            if (retryAfter != null) {
+                headers.add(new BasicNameValuePair("Retry-After", retryAfter));
+            }
+            byte[] content = body.getBytes("UTF-8");
+            return new TransportResponse(code, headers, new ByteArrayInputStream(content), content.length, null);
+        }
+    }
+}
@@ -47,6 +47,15 @@ public class TestRunner extends InstrumentationTestRunner {
         suite.addTest(TestSuite.createTest(AuthorizationManagementTest.class, "testGetNewAuthorizationToken"));
         suite.addTest(TestSuite.createTest(AuthorizationManagementTest.class, "testGetAuthorizationTokenInfo"));
         suite.addTest(TestSuite.createTest(AuthorizationManagementTest.class, "testValidateAuthToken"));
+        suite.addTest(TestSuite.createTest(AuthorizationManagementTest.class, "testSessionStateMatchesSharedPreferences"));
+        suite.addTest(TestSuite.createTest(AuthorizationManagementTest.class, "testBearerHeadersFollowTokenChange"));
+        suite.addTest(TestSuite.createTest(AuthorizationManagementTest.class, "testAuthTokenManagerRefresh"));
+
+        //Rate limiting
+        suite.addTest(TestSuite.createTest(RateLimiterTest.class, "testReserveSpreadsRequests"));
+        suite.addTest(TestSuite.createTest(RateLimiterTest.class, "testReleaseReturnsToken"));
+        suite.addTest(TestSuite.createTest(RateLimiterTest.class, "testAcquireWaitsForToken"));
+        suite.addTest(TestSuite.createTest(RateLimiterTest.class, "testAuthTokenNotRateLimited"));
 
         //User management
         suite.addTest(TestSuite.createTest(UserManagementTest.class, "testGetUserInfo"));
@@ -75,12 +84,17 @@ public class TestRunner extends InstrumentationTestRunner {
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testCreateNewDevice"));
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testUpdateADevice"));
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetDeviceList"));
+        suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetDeviceListConcurrently"));
+        suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetDeviceListUrlConnection"));
+        suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetDeviceListIntercepted"));
+        suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetDeviceListDeadline"));
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetMyDeviceInfo"));
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetInfoOnDevice"));
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testActivateADevice"));
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testAddComponentToDevice"));
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetAllAttributes"));
         suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetAllTags"));
+        suite.addTest(TestSuite.createTest(DeviceManagementTest.class, "testGetAllTagsCached"));
 
 
         //Component Types Catalog
@@ -92,7 +106,20 @@ public class TestRunner extends InstrumentationTestRunner {
 
         //Data management
         suite.addTest(TestSuite.createTest(DataManagementTest.class, "testSubmitData"));
+        suite.addTest(TestSuite.createTest(DataManagementTest.class, "testSubmitDataWithRetry"));
+        suite.addTest(TestSuite.createTest(RetryPolicyTest.class, "testBackoffBounds"));
+        suite.addTest(TestSuite.createTest(RetryPolicyTest.class, "testBackoffJitter"));
+        suite.addTest(TestSuite.createTest(RetryPolicyTest.class, "testRetryAfter"));
+        suite.addTest(TestSuite.createTest(RetryPolicyTest.class, "testMalformedBodyNotRetried"));
+        suite.addTest(TestSuite.createTest(RetryPolicyTest.class, "testInterceptorFailureUnwinds"));
+        suite.addTest(TestSuite.createTest(DataManagementTest.class, "testSubmitDataBatch"));
+        suite.addTest(TestSuite.createTest(DataManagementTest.class, "testDataSubmitBuffer"));
+        suite.addTest(TestSuite.createTest(DataOutboxTest.class, "testAppendRecoverAndReplay"));
+        suite.addTest(TestSuite.createTest(DataOutboxTest.class, "testRecoverSkipsCorruptedRecord"));
+        suite.addTest(TestSuite.createTest(DataOutboxTest.class, "testReplayKeepsTransientFailures"));
         suite.addTest(TestSuite.createTest(DataManagementTest.class, "testRetrieveData"));
+        suite.addTest(TestSuite.createTest(DataManagementTest.class, "testRetrieveTimeSeries"));
+        suite.addTest(TestSuite.createTest(DataManagementTest.class, "testRetrieveTimeSeriesChunked"));
 
         //Invitation Management
         suite.addTest(TestSuite.createTest(InvitationManagementTest.class, "testCreateInvitation"));
@@ -115,6 +142,8 @@ public class TestRunner extends InstrumentationTestRunner {
 
         //Advanced Data Inquiry
         suite.addTest(TestSuite.createTest(AdvancedDataInquiryTest.class, "testAdvancedDataEnquiry"));
+        suite.addTest(TestSuite.createTest(AdvancedDataInquiryTest.class, "testAdvancedDataEnquiryStreamed"));
+        suite.addTest(TestSuite.createTest(AdvancedDataInquiryTest.class, "testAdvancedDataEnquiryCancelled"));
 
         //Aggregated report interface
         suite.addTest(TestSuite.createTest(AggregatedReportInterfaceTest.class, "testAggregatedReportInterface"));
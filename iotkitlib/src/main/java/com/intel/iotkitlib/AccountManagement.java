@@ -85,7 +85,7 @@ public class AccountManagement extends ParentModule {
         //initiating post for authorization
         HttpPostTask createAnAccount = new HttpPostTask();
 
-        createAnAccount.setHeaders(basicHeaderList);
+        createAnAccount.setHeaders(getBasicHeaders());
         createAnAccount.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.createAnAccount, null);
         RequestStatusHandler preProcessing = new RequestStatusHandler() {
@@ -115,7 +115,7 @@ public class AccountManagement extends ParentModule {
     public CloudResponse getAccountInformation() {
         //initiating get for account info
         HttpGetTask getAccountInfo = new HttpGetTask();
-        getAccountInfo.setHeaders(basicHeaderList);
+        getAccountInfo.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.getAccountInfo, null);
         return super.invokeHttpExecuteOnURL(url, getAccountInfo);
     }
@@ -132,7 +132,7 @@ public class AccountManagement extends ParentModule {
     public CloudResponse getAccountActivationCode() {
         //initiating get for account activation code
         HttpGetTask getAccountActivationCode = new HttpGetTask();
-        getAccountActivationCode.setHeaders(basicHeaderList);
+        getAccountActivationCode.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.getActivationCode, null);
         RequestStatusHandler preProcessing = new RequestStatusHandler() {
             @Override
@@ -162,7 +162,7 @@ public class AccountManagement extends ParentModule {
     public CloudResponse renewAccountActivationCode() {
         //initiating put for account activation code
         HttpPutTask renewActivationCode = new HttpPutTask();
-        renewActivationCode.setHeaders(basicHeaderList);
+        renewActivationCode.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.renewActivationCode, null);
         return super.invokeHttpExecuteOnURL(url, renewActivationCode);
     }
@@ -181,7 +181,7 @@ public class AccountManagement extends ParentModule {
                 }
             }
         };
-        updateAccount.setHeaders(basicHeaderList);
+        updateAccount.setHeaders(getBasicHeaders());
         //populating the JSON body of account updation
         String body = null;
         try {
@@ -207,7 +207,7 @@ public class AccountManagement extends ParentModule {
     public CloudResponse deleteAnAccount() {
         //initiating Delete of an account
         HttpDeleteTask deleteAccount = new HttpDeleteTask();
-        deleteAccount.setHeaders(basicHeaderList);
+        deleteAccount.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.deleteAccount, null);
         return super.invokeHttpExecuteOnURL(url, deleteAccount);
     }
@@ -240,7 +240,7 @@ public class AccountManagement extends ParentModule {
             Log.d(TAG, ERR_INVALID_BODY);
             return new CloudResponse(false, ERR_INVALID_BODY);
         }
-        addUser.setHeaders(basicHeaderList);
+        addUser.setHeaders(getBasicHeaders());
         addUser.setRequestBody(body);
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("invitee_user_id", inviteeUserId);
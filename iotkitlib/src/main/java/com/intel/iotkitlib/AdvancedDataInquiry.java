@@ -24,6 +24,7 @@ package com.intel.iotkitlib;
 
 import com.intel.iotkitlib.http.CloudResponse;
 import com.intel.iotkitlib.http.HttpPostTask;
+import com.intel.iotkitlib.http.JsonResponseDecoder;
 import com.intel.iotkitlib.models.AttributeFilter;
 
 import org.apache.http.NameValuePair;
@@ -237,14 +238,31 @@ public class AdvancedDataInquiry extends ParentModule {
      * @throws JSONException
      */
     public CloudResponse request() throws JSONException {
+        return request(null);
+    }
+
+    /**
+     * Starts a request for the report, decoding the response from the stream as it arrives.
+     *
+     * @param responseDecoder decoder for a successful response; the decoded object is returned
+     *                        by {@link CloudResponse#getDecodedResponse()}. If null, the
+     *                        response is read as String.
+     * @return For async model, return CloudResponse which wraps true if the request of REST
+     * call is valid; otherwise false. The actual result from
+     * the REST call is return asynchronously as part {@link RequestStatusHandler#readResponse}.
+     * For synch model, return CloudResponse which wraps HTTP return code and response.
+     * @throws JSONException
+     */
+    public CloudResponse request(JsonResponseDecoder responseDecoder) throws JSONException {
         String body;
         if ((body = createBodyForAdvancedDataInquiry()) == null) {
             return new CloudResponse(false, ERR_INVALID_REQUEST);
         }
         //initiating post for advanced data inquiry
         HttpPostTask advancedDataInquiry = new HttpPostTask();
-        advancedDataInquiry.setHeaders(basicHeaderList);
+        advancedDataInquiry.setHeaders(getBasicHeaders());
         advancedDataInquiry.setRequestBody(body);
+        advancedDataInquiry.setResponseDecoder(responseDecoder);
         String url = objIotKit.prepareUrl(objIotKit.advancedEnquiryOfData, null);
         return super.invokeHttpExecuteOnURL(url, advancedDataInquiry);
     }
@@ -227,7 +227,7 @@ public class AggregatedReportInterface extends ParentModule {
         }
         //initiating post for aggregated report interface
         HttpPostTask reportInterface = new HttpPostTask();
-        reportInterface.setHeaders(basicHeaderList);
+        reportInterface.setHeaders(getBasicHeaders());
         reportInterface.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.aggregatedReportInterface, null);
         return super.invokeHttpExecuteOnURL(url, reportInterface);
@@ -74,7 +74,7 @@ public class AlertManagement extends ParentModule {
     public CloudResponse getListOfAlerts() {
         //initiating get for list of alerts
         HttpGetTask listOfAlerts = new HttpGetTask();
-        listOfAlerts.setHeaders(basicHeaderList);
+        listOfAlerts.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.getListOfAlerts, null);
         return super.invokeHttpExecuteOnURL(url, listOfAlerts);
     }
@@ -94,7 +94,7 @@ public class AlertManagement extends ParentModule {
         }
         //initiating get for alert info
         HttpGetTask infoOnAlert = new HttpGetTask();
-        infoOnAlert.setHeaders(basicHeaderList);
+        infoOnAlert.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("alert_id", alertId);
         String url = objIotKit.prepareUrl(objIotKit.getAlertInformation, linkedHashMap);
@@ -116,7 +116,7 @@ public class AlertManagement extends ParentModule {
         }
         //initiating put for resetting alert
         HttpPutTask alertReset = new HttpPutTask();
-        alertReset.setHeaders(basicHeaderList);
+        alertReset.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("alert_id", alertId);
         String url = objIotKit.prepareUrl(objIotKit.resetAlert, linkedHashMap);
@@ -139,7 +139,7 @@ public class AlertManagement extends ParentModule {
         }
         //initiating put for updating alert status
         HttpPutTask updateAlertStatus = new HttpPutTask();
-        updateAlertStatus.setHeaders(basicHeaderList);
+        updateAlertStatus.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("alert_id", alertId);
         linkedHashMap.put("status_name", status);
@@ -170,7 +170,7 @@ public class AlertManagement extends ParentModule {
         }
         //initiating post for adding comment to alert
         HttpPostTask addCommentsTOAlert = new HttpPostTask();
-        addCommentsTOAlert.setHeaders(basicHeaderList);
+        addCommentsTOAlert.setHeaders(getBasicHeaders());
         addCommentsTOAlert.setRequestBody(body);
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("alert_id", alertId);
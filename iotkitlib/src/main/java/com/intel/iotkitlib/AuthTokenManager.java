@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib;
+
+import android.util.Log;
+
+import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.utils.IotKit;
+import com.intel.iotkitlib.utils.SessionState;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the user auth token valid: a new token is requested on a background thread some time
+ * before the current one expires, so that requests never fail because the token ran out.
+ * <p/>
+ * The expiry is taken from the token info. The new token replaces the old one only once it has
+ * been issued; requests in flight keep the token they were sent with, and the requests that
+ * follow use the new one. A failed refresh is retried, while the current token stays in use.
+ * The refresh lead time and retry delay are the "token_refresh" settings in {@link IotKit}.
+ */
+public class AuthTokenManager {
+    private final static String TAG = "AuthTokenManager";
+
+    // Errors
+    public final static String ERR_INVALID_CREDENTIALS = "user name and password cannot be null";
+
+    private final String username;
+    private final String password;
+    private final RequestStatusHandler statusHandler;
+    private final long refreshLead;
+    private final long retryDelay;
+
+    private final ScheduledExecutorService refreshExecutor;
+    //one refresh at a time, whether scheduled or called directly
+    private final Object refreshLock = new Object();
+    private ScheduledFuture<?> pendingRefresh;
+    private boolean stopped;
+
+    /**
+     * @param username      the user name that identifies the user. This is usually an email address.
+     * @param password      the password for the user; it is only kept in memory.
+     * @param statusHandler The handler that gets the cloud response of each scheduled refresh. It is
+     *                      called on the refresh thread; it can be null.
+     */
+    public AuthTokenManager(String username, String password, RequestStatusHandler statusHandler) {
+        if (username == null || password == null) {
+            throw new IllegalArgumentException(ERR_INVALID_CREDENTIALS);
+        }
+        this.username = username;
+        this.password = password;
+        this.statusHandler = statusHandler;
+        IotKit objIotKit = IotKit.getInstance();
+        this.refreshLead = objIotKit.tokenRefreshLead;
+        this.retryDelay = objIotKit.tokenRefreshRetryDelay;
+        this.refreshExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Schedule the refresh of the current token. Without a token, or when its expiry is not
+     * known or too close, a new token is requested right away.
+     */
+    public synchronized void start() {
+        if (stopped) {
+            Log.d(TAG, "token manager is stopped");
+            return;
+        }
+        scheduleRefresh(getRefreshDelay());
+    }
+
+    /**
+     * Stop refreshing the token. The current token stays in use until it expires.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+            pendingRefresh = null;
+        }
+        refreshExecutor.shutdown();
+    }
+
+    /**
+     * Request a new token now, on the calling thread, and schedule the next refresh.
+     *
+     * @return the response of the token request, or of the token info request if the token was
+     * issued; the token was refreshed if the code is 200.
+     */
+    public CloudResponse refresh() {
+        CloudResponse response;
+        synchronized (refreshLock) {
+            response = requestToken();
+        }
+        synchronized (this) {
+            if (!stopped) {
+                //a token that lives shorter than the lead time is refreshed every retry delay
+                scheduleRefresh(response.getCode() == 200 ? Math.max(getRefreshDelay(), retryDelay) : retryDelay);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * @return the time the current token expires, in milliseconds since the epoch; 0 if unknown.
+     */
+    public long getTokenExpiry() {
+        return SessionState.getInstance().getAuthTokenExpiry();
+    }
+
+    private CloudResponse requestToken() {
+        //sync mode, the token and its details are stored before the calls return
+        AuthorizationManagement authorization = new AuthorizationManagement();
+        CloudResponse response = authorization.getNewAuthorizationToken(username, password);
+        if (response.getCode() != 200) {
+            Log.w(TAG, "token refresh failed, code " + response.getCode() + ": " + response.getResponse());
+            return response;
+        }
+        //the token info has the expiry of the new token
+        response = authorization.getAuthorizationTokenInfo();
+        if (response.getCode() != 200) {
+            Log.w(TAG, "token info after refresh failed, code " + response.getCode());
+        }
+        return response;
+    }
+
+    private long getRefreshDelay() {
+        SessionState session = SessionState.getInstance();
+        String token = session.getAuthToken();
+        long expiry = session.getAuthTokenExpiry();
+        if (token == null || token.isEmpty() || expiry == 0) {
+            return 0;
+        }
+        return Math.max(0, expiry - refreshLead - System.currentTimeMillis());
+    }
+
+    //must be called holding the lock
+    private void scheduleRefresh(long delay) {
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+        }
+        Log.d(TAG, "next token refresh in " + delay + " ms");
+        pendingRefresh = refreshExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                CloudResponse response = refresh();
+                if (statusHandler != null) {
+                    statusHandler.readResponse(response);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
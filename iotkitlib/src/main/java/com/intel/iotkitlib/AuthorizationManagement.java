@@ -122,7 +122,7 @@ public class AuthorizationManagement extends ParentModule {
     public CloudResponse getAuthorizationTokenInfo() {
         //building basic header contains content-type and bearer token
         List<NameValuePair> headers;
-        if ((headers = Utilities.createBasicHeadersWithBearerToken()) == null) {
+        if ((headers = getBasicHeaders()) == null) {
             Log.d(TAG, ERR_INVALID_BEARER);
             return new CloudResponse(false, ERR_INVALID_BEARER);
         }
@@ -159,7 +159,7 @@ public class AuthorizationManagement extends ParentModule {
     public CloudResponse validateAuthorizationToken() {
         //building basic header contains content-type and bearer token
         List<NameValuePair> headers;
-        if ((headers = Utilities.createBasicHeadersWithBearerToken()) == null) {
+        if ((headers = getBasicHeaders()) == null) {
             Log.d(TAG, ERR_INVALID_BEARER);
             return new CloudResponse(false, ERR_INVALID_BEARER);
         }
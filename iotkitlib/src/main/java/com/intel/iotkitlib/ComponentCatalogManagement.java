@@ -84,7 +84,7 @@ public class ComponentCatalogManagement extends ParentModule {
     public CloudResponse listAllComponentTypesCatalog() {
         //initiating get for list all component types
         HttpGetTask listAllComponents = new HttpGetTask();
-        listAllComponents.setHeaders(basicHeaderList);
+        listAllComponents.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.listAllComponentTypesCatalog, null);
         return super.invokeHttpExecuteOnURL(url, listAllComponents);
     }
@@ -99,7 +99,7 @@ public class ComponentCatalogManagement extends ParentModule {
     public CloudResponse listAllDetailsOfComponentTypesCatalog() {
         //initiating get for list all component types detailed
         HttpGetTask listAllComponentsDetails = new HttpGetTask();
-        listAllComponentsDetails.setHeaders(basicHeaderList);
+        listAllComponentsDetails.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.listAllComponentTypesCatalogDetailed, null);
         return super.invokeHttpExecuteOnURL(url, listAllComponentsDetails);
     }
@@ -115,7 +115,7 @@ public class ComponentCatalogManagement extends ParentModule {
     public CloudResponse listComponentTypeDetails(String componentId) {
         //initiating get for component type details
         HttpGetTask componentTypeDetails = new HttpGetTask();
-        componentTypeDetails.setHeaders(basicHeaderList);
+        componentTypeDetails.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("cmp_catalog_id", componentId);
         String url = objIotKit.prepareUrl(objIotKit.componentTypeCatalogDetails, linkedHashMap);
@@ -143,7 +143,7 @@ public class ComponentCatalogManagement extends ParentModule {
         }
         //initiating post for component creation
         HttpPostTask createNewComponent = new HttpPostTask();
-        createNewComponent.setHeaders(basicHeaderList);
+        createNewComponent.setHeaders(getBasicHeaders());
         createNewComponent.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.createCustomComponent, null);
         return super.invokeHttpExecuteOnURL(url, createNewComponent);
@@ -171,7 +171,7 @@ public class ComponentCatalogManagement extends ParentModule {
         }
         //initiating put for component updation
         HttpPutTask updateComponent = new HttpPutTask();
-        updateComponent.setHeaders(basicHeaderList);
+        updateComponent.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("cmp_catalog_id", componentId);
         updateComponent.setRequestBody(body);
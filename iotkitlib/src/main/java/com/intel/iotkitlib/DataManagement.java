@@ -26,7 +26,14 @@ import android.util.Log;
 
 import com.intel.iotkitlib.http.CloudResponse;
 import com.intel.iotkitlib.http.HttpPostTask;
+import com.intel.iotkitlib.http.HttpTaskExecutor;
+import com.intel.iotkitlib.http.JsonResponseDecoder;
+import com.intel.iotkitlib.http.RetryPolicy;
+import com.intel.iotkitlib.models.Observation;
 import com.intel.iotkitlib.models.TimeSeriesData;
+import com.intel.iotkitlib.models.TimeSeriesDecoder;
+import com.intel.iotkitlib.models.TimeSeriesResult;
+import com.intel.iotkitlib.utils.SessionState;
 import com.intel.iotkitlib.utils.Utilities;
 
 import org.apache.http.NameValuePair;
@@ -34,8 +41,10 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data management functions
@@ -45,8 +54,11 @@ public class DataManagement extends ParentModule {
     public final static String ERR_SUBMIT_DATA = "Cannot submit data for device component";
     public final static String ERR_CREATE_DATA = "Cannot create request for submit data";
     public final static String ERR_INVALID_DATA = "device List or componentId List cannot be null";
+    public final static String ERR_EMPTY_BATCH = "observation List cannot be null or empty";
     private final static String TAG = "DataManagement";
 
+    private DataOutbox outbox;
+    private RetryPolicy submitRetryPolicy;
 
     /**
      * Submit and retrieve data for a device. This is use to do sync operation.
@@ -67,6 +79,54 @@ public class DataManagement extends ParentModule {
         super(requestStatusHandler);
     }
 
+    /**
+     * Keep data submissions that fail because the cloud cannot be reached in an on-disk outbox.
+     * The outbox is replayed in order after the next successful submission, or when
+     * {@link #replayOutbox()} is called, e.g. from a connectivity change receiver.
+     *
+     * @param outbox the outbox to store failed submissions in; null disables it.
+     */
+    public void setOutbox(DataOutbox outbox) {
+        this.outbox = outbox;
+    }
+
+    public DataOutbox getOutbox() { return outbox; }
+
+    /**
+     * Retry data submissions that fail with a transient error. Submissions are not retried by
+     * default, since a submission whose response is lost is stored twice when it is sent again;
+     * the "retry" "submit_data" setting in config.json retries them with the default policy.
+     *
+     * @param retryPolicy the policy for data submissions; null uses the configured behaviour.
+     */
+    public void setSubmitRetryPolicy(RetryPolicy retryPolicy) {
+        this.submitRetryPolicy = retryPolicy;
+    }
+
+    /**
+     * Send the submissions stored in the outbox to the cloud, oldest first. This runs on the
+     * outbox thread and stops at the first submission that cannot be delivered.
+     */
+    public void replayOutbox() {
+        if (outbox == null) {
+            return;
+        }
+        outbox.replay(new DataOutbox.Sender() {
+            @Override
+            public int send(String url, String body) {
+                List<NameValuePair> submitDataHeaders = getDeviceTokenHeaders();
+                if (submitDataHeaders == null) {
+                    Log.d(TAG, ERR_CREATE_DATA);
+                    return 0;
+                }
+                HttpPostTask replayDeviceData = new HttpPostTask();
+                replayDeviceData.setHeaders(submitDataHeaders);
+                replayDeviceData.setRequestBody(body);
+                return replayDeviceData.doSync(url).getCode();
+            }
+        });
+    }
+
     /**
      * Submit data for specific device and it's component. Device and component have to be
      * registered in the cloud before sending observations. The device id
@@ -93,7 +153,7 @@ public class DataManagement extends ParentModule {
         String body = createHttpBodyToSubmitData(componentId, componentValue, latitude, longitude, height);
         //initiating post for data submission
         HttpPostTask submitDeviceData = new HttpPostTask();
-        List<NameValuePair> submitDataHeaders = Utilities.createBasicHeadersWithDeviceToken();
+        List<NameValuePair> submitDataHeaders = getDeviceTokenHeaders();
         if (submitDataHeaders == null) {
             Log.d(TAG, ERR_CREATE_DATA);
             return new CloudResponse(false, ERR_CREATE_DATA);
@@ -101,7 +161,7 @@ public class DataManagement extends ParentModule {
         submitDeviceData.setHeaders(submitDataHeaders);
         submitDeviceData.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.submitData, null);
-        return super.invokeHttpExecuteOnURL(url, submitDeviceData);
+        return invokeSubmitData(url, body, submitDeviceData);
     }
 
     /**
@@ -130,7 +190,7 @@ public class DataManagement extends ParentModule {
         String body = createHttpBodyToSubmitData(componentId, componentValue, latitude, longitude, height);
         //initiating post for data submission
         HttpPostTask submitDeviceData = new HttpPostTask();
-        List<NameValuePair> submitDataHeaders = Utilities.createBasicHeadersWithDeviceToken();
+        List<NameValuePair> submitDataHeaders = getDeviceTokenHeaders();
         if (submitDataHeaders == null) {
             Log.d(TAG, ERR_CREATE_DATA);
             return new CloudResponse(false, ERR_CREATE_DATA);
@@ -141,8 +201,68 @@ public class DataManagement extends ParentModule {
         submitDeviceData.setHeaders(submitDataHeaders);
         submitDeviceData.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.submitData, linkedHashMap);
-        return super.invokeHttpExecuteOnURL(url, submitDeviceData);
+        return invokeSubmitData(url, body, submitDeviceData);
+
+    }
+
+    /**
+     * Submit a batch of observations for the current device in a single request. Each
+     * observation keeps its own timestamp, so samples taken at a high rate can be sent
+     * together instead of one request per sample. Device and components have to be
+     * registered in the cloud before sending observations. The device id
+     * that is used will be the current device that is cached usually after a create new device.
+     *
+     * @param observations the observations to submit; all of them are sent in one request.
+     * @return For async model, return CloudResponse which wraps true if the request of REST
+     * call is valid; otherwise false. The actual result from
+     * the REST call is return asynchronously as part {@link RequestStatusHandler#readResponse}.
+     * For synch model, return CloudResponse which wraps HTTP return code and response.
+     * @throws JSONException
+     */
+    public CloudResponse submitDataBatch(List<Observation> observations) throws JSONException {
+        return submitDataBatch(null, observations);
+    }
 
+    /**
+     * Submit a batch of observations for a specific device in a single request. Each
+     * observation keeps its own timestamp. Device and components have to be
+     * registered in the cloud before sending observations.
+     *
+     * @param deviceId     the identifier for the device to submit the data for; if null the
+     *                     current device is used.
+     * @param observations the observations to submit; all of them are sent in one request.
+     * @return For async model, return CloudResponse which wraps true if the request of REST
+     * call is valid; otherwise false. The actual result from
+     * the REST call is return asynchronously as part {@link RequestStatusHandler#readResponse}.
+     * For synch model, return CloudResponse which wraps HTTP return code and response.
+     * @throws JSONException
+     */
+    public CloudResponse submitDataBatch(String deviceId, List<Observation> observations) throws JSONException {
+        if (observations == null || observations.isEmpty()) {
+            Log.d(TAG, ERR_EMPTY_BATCH);
+            return new CloudResponse(false, ERR_EMPTY_BATCH);
+        }
+        String body = createHttpBodyToSubmitDataBatch(observations);
+        if (body == null) {
+            Log.d(TAG, ERR_SUBMIT_DATA);
+            return new CloudResponse(false, ERR_SUBMIT_DATA);
+        }
+        //initiating post for data submission
+        HttpPostTask submitDeviceData = new HttpPostTask();
+        List<NameValuePair> submitDataHeaders = getDeviceTokenHeaders();
+        if (submitDataHeaders == null) {
+            Log.d(TAG, ERR_CREATE_DATA);
+            return new CloudResponse(false, ERR_CREATE_DATA);
+        }
+        LinkedHashMap<String, String> linkedHashMap = null;
+        if (deviceId != null) {
+            linkedHashMap = new LinkedHashMap<String, String>();
+            linkedHashMap.put("device_id", deviceId);
+        }
+        submitDeviceData.setHeaders(submitDataHeaders);
+        submitDeviceData.setRequestBody(body);
+        String url = objIotKit.prepareUrl(objIotKit.submitData, linkedHashMap);
+        return invokeSubmitData(url, body, submitDeviceData);
     }
 
     /**
@@ -156,17 +276,130 @@ public class DataManagement extends ParentModule {
      * @throws JSONException
      */
     public CloudResponse retrieveData(TimeSeriesData objTimeSeriesData) throws JSONException {
+        return retrieveData(objTimeSeriesData, null);
+    }
+
+    /**
+     * Retrieve data for an account, decoding the response from the stream as it arrives.
+     *
+     * @param objTimeSeriesData time series data criteria for retrieve data from the cloud
+     * @param responseDecoder   decoder for a successful response; the decoded object is returned
+     *                          by {@link CloudResponse#getDecodedResponse()}. If null, the
+     *                          response is read as String.
+     * @return For async model, return CloudResponse which wraps true if the request of REST
+     * call is valid; otherwise false. The actual result from
+     * the REST call is return asynchronously as part {@link RequestStatusHandler#readResponse}.
+     * For synch model, return CloudResponse which wraps HTTP return code and response.
+     * @throws JSONException
+     */
+    public CloudResponse retrieveData(TimeSeriesData objTimeSeriesData,
+                                      JsonResponseDecoder responseDecoder) throws JSONException {
         if (!validateRetrieveDataValues(objTimeSeriesData)) {
             return new CloudResponse(false, ERR_INVALID_DATA);
         }
         String body = createHttpBodyToRetrieveData(objTimeSeriesData);
         //initiating post for data retrieval
         HttpPostTask retrieveDataTask = new HttpPostTask();
-        retrieveDataTask.setHeaders(basicHeaderList);
+        retrieveDataTask.setHeaders(getBasicHeaders());
         retrieveDataTask.setRequestBody(body);
+        retrieveDataTask.setResponseDecoder(responseDecoder);
         String url = objIotKit.prepareUrl(objIotKit.retrieveData, null);
         return super.invokeHttpExecuteOnURL(url, retrieveDataTask);
+    }
 
+    /**
+     * Retrieve data for an account as typed time series. The response is decoded from the
+     * stream into primitive arrays per component; the decoded {@link TimeSeriesResult} is
+     * returned by {@link CloudResponse#getDecodedResponse()} when the request succeeds.
+     *
+     * @param objTimeSeriesData time series data criteria for retrieve data from the cloud
+     * @return For async model, return CloudResponse which wraps true if the request of REST
+     * call is valid; otherwise false. The actual result from
+     * the REST call is return asynchronously as part {@link RequestStatusHandler#readResponse}.
+     * For synch model, return CloudResponse which wraps HTTP return code and decoded response.
+     * @throws JSONException
+     */
+    public CloudResponse retrieveTimeSeries(TimeSeriesData objTimeSeriesData) throws JSONException {
+        return retrieveData(objTimeSeriesData, new TimeSeriesDecoder());
+    }
+
+    /**
+     * Retrieve data for an account as typed time series, splitting a large query into chunks.
+     * The [from, to] window is cut into windows of "chunk_duration_ms" and the device list into
+     * groups of "devices_per_chunk" from the "data_retrieval" settings; up to "parallelism"
+     * chunks are fetched at the same time and the series are merged in timestamp order.
+     * <p/>
+     * In async mode a {@link RetrieveProgressHandler} also gets a progress call after each chunk.
+     * The chunks run on the library executor. If a chunk fails, the chunks that have not been
+     * queued yet are not fetched and the response of the failed chunk is returned.
+     *
+     * @param objTimeSeriesData time series data criteria for retrieve data from the cloud
+     * @return For async model, return CloudResponse which wraps true if the request of REST
+     * call is valid; otherwise false. The actual result from
+     * the REST call is return asynchronously as part {@link RequestStatusHandler#readResponse}.
+     * For synch model, return CloudResponse which wraps HTTP return code and the merged
+     * {@link TimeSeriesResult} as decoded response.
+     */
+    public CloudResponse retrieveTimeSeriesChunked(TimeSeriesData objTimeSeriesData) {
+        if (!validateRetrieveDataValues(objTimeSeriesData) || objTimeSeriesData.getDeviceList().isEmpty()
+                || objTimeSeriesData.getFromTimeInMillis() == null || objTimeSeriesData.getToTimeInMillis() == null
+                || objTimeSeriesData.getFromTimeInMillis() > objTimeSeriesData.getToTimeInMillis()) {
+            Log.d(TAG, ERR_INVALID_DATA);
+            return new CloudResponse(false, ERR_INVALID_DATA);
+        }
+        final TimeSeriesChunkedRetrieval retrieval = new TimeSeriesChunkedRetrieval(objTimeSeriesData,
+                objIotKit.retrieveChunkDuration, objIotKit.retrieveDevicesPerChunk, objIotKit.retrieveParallelism);
+        if (statusHandler == null) {
+            return retrieval.run(null);
+        }
+        final RequestStatusHandler handler = statusHandler;
+        retrieval.start(new TimeSeriesChunkedRetrieval.ProgressListener() {
+            @Override
+            public void onProgress(final int completedChunks, final int totalChunks) {
+                if (handler instanceof RetrieveProgressHandler) {
+                    HttpTaskExecutor.deliver(new Runnable() {
+                        @Override
+                        public void run() {
+                            ((RetrieveProgressHandler) handler).onProgress(completedChunks, totalChunks);
+                        }
+                    });
+                }
+            }
+        }, new TimeSeriesChunkedRetrieval.CompletionListener() {
+            @Override
+            public void onComplete(final CloudResponse response) {
+                HttpTaskExecutor.deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        handler.readResponse(response);
+                    }
+                });
+            }
+        });
+        return new CloudResponse(true, "Successful execute chunked data retrieval");
+    }
+
+    private CloudResponse invokeSubmitData(final String url, final String body, HttpPostTask submitDeviceData) {
+        if (submitRetryPolicy != null) {
+            submitDeviceData.setRetryPolicy(submitRetryPolicy);
+        } else if (objIotKit.retrySubmitData) {
+            submitDeviceData.setRetryPolicy(RetryPolicy.getDefault());
+        }
+        if (outbox == null) {
+            return super.invokeHttpExecuteOnURL(url, submitDeviceData);
+        }
+        RequestStatusHandler preProcessing = new RequestStatusHandler() {
+            @Override
+            public void readResponse(CloudResponse response) {
+                if (response.isNetworkFailure()) {
+                    //cloud not reachable, keep the observations for a later replay
+                    outbox.append(url, body);
+                } else if (response.getCode() == 201 && outbox.getPendingCount() > 0) {
+                    replayOutbox();
+                }
+            }
+        };
+        return super.invokeHttpExecuteOnURL(url, submitDeviceData, preProcessing);
     }
 
     private String createHttpBodyToRetrieveData(TimeSeriesData objTimeSeriesData) throws JSONException {
@@ -205,12 +438,47 @@ public class DataManagement extends ParentModule {
 
         JSONObject submitDataJson = new JSONObject();
         submitDataJson.put("on", System.currentTimeMillis());
-        submitDataJson.put("accountId", Utilities.sharedPreferences.getString("account_id", ""));
+        submitDataJson.put("accountId", SessionState.getInstance().getAccountId());
         JSONArray dataArray = new JSONArray();
+        dataArray.put(createDataJson(componentId, componentValue, System.currentTimeMillis(),
+                latitude, longitude, height));
+        submitDataJson.put("data", dataArray);
+        return submitDataJson.toString();
+    }
+
+    private String createHttpBodyToSubmitDataBatch(List<Observation> observations) throws JSONException {
+        JSONArray dataArray = new JSONArray();
+        //component ids are looked up once per component name in the batch
+        Map<String, String> componentIds = new HashMap<String, String>();
+        for (Observation observation : observations) {
+            String componentId = componentIds.get(observation.getComponentName());
+            if (componentId == null) {
+                componentId = validateRequestBodyParametersAndGetcomponentId(observation.getComponentName(),
+                        observation.getComponentValue());
+                if (componentId == null) {
+                    return null;
+                }
+                componentIds.put(observation.getComponentName(), componentId);
+            } else if (observation.getComponentValue() == null) {
+                Log.d(TAG, "submitData::Value cannot be NULL");
+                return null;
+            }
+            dataArray.put(createDataJson(componentId, observation.getComponentValue(), observation.getTimestamp(),
+                    observation.getLatitude(), observation.getLongitude(), observation.getHeight()));
+        }
+        JSONObject submitDataJson = new JSONObject();
+        submitDataJson.put("on", System.currentTimeMillis());
+        submitDataJson.put("accountId", SessionState.getInstance().getAccountId());
+        submitDataJson.put("data", dataArray);
+        return submitDataJson.toString();
+    }
+
+    private JSONObject createDataJson(String componentId, String componentValue, long timestamp,
+                                      Double latitude, Double longitude, Double height) throws JSONException {
         JSONObject dataJson = new JSONObject();
         dataJson.put("componentId", componentId);
         dataJson.put("value", componentValue);
-        dataJson.put("on", System.currentTimeMillis());
+        dataJson.put("on", timestamp);
         if (latitude != null && longitude != null) {
             JSONArray locationArray = new JSONArray();
             locationArray.put(latitude);
@@ -220,9 +488,7 @@ public class DataManagement extends ParentModule {
             }
             dataJson.put("loc", locationArray);
         }
-        dataArray.put(dataJson);
-        submitDataJson.put("data", dataArray);
-        return submitDataJson.toString();
+        return dataJson;
     }
 
     private String validateRequestBodyParametersAndGetcomponentId(String componentName, String componentValue) {
@@ -234,11 +500,11 @@ public class DataManagement extends ParentModule {
             Log.d(TAG, "submitData::Value cannot be NULL");
             return null;
         }
-        if (Utilities.sharedPreferences == null) {
+        if (!SessionState.getInstance().isLoaded()) {
             Log.d(TAG, "Error in accessing accountID from shared prefs, shared prefs null");
             return null;
         }
-        if (Utilities.sharedPreferences.getString("account_id", "") == null) {
+        if (SessionState.getInstance().getAccountId() == null) {
             Log.d(TAG, "submitData::Account is NULL. Device appears to be unactivated");
             return null;
         }
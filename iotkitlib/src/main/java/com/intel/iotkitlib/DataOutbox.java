@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk store for data submissions that could not reach the cloud.
+ * <p/>
+ * Requests are written as checksummed records to segment files and replayed in the order they
+ * were stored. The replay position is kept in a separate acknowledgement file, segments that
+ * are completely acknowledged are deleted. A torn record at the end of the last segment (crash
+ * while appending) is detected by its length and checksum and truncated when the outbox is
+ * opened; a record with a bad checksum elsewhere is skipped, and if a record length cannot be
+ * trusted the rest of that segment is skipped and left on disk. Delivery is at least once: a
+ * crash between a successful replay and the write of the acknowledgement sends that request
+ * again.
+ * <p/>
+ * The files are read on the calling thread when the outbox is opened, so open it off the main
+ * thread. After that, appends and replays are done on a single background thread owned by the
+ * outbox, and {@link #getPendingCount()} does not wait for them.
+ */
+public class DataOutbox {
+    private final static String TAG = "DataOutbox";
+
+    private final static String DEFAULT_DIRECTORY = "iotkit-outbox";
+    private final static String SEGMENT_PREFIX = "outbox-";
+    private final static String SEGMENT_SUFFIX = ".seg";
+    private final static String ACK_FILE = "outbox.ack";
+    private final static String ENCODING = "UTF-8";
+    private final static long DEFAULT_SEGMENT_SIZE = 256 * 1024;
+    //record header is payload length followed by payload crc32
+    private final static int HEADER_SIZE = 12;
+    private final static int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    //returned by readRecord for a record whose checksum does not match, compared by reference
+    private final static String CORRUPTED_RECORD = new String("corrupted");
+
+    /**
+     * Sends one stored request, see {@link DataManagement#replayOutbox()}.
+     */
+    public interface Sender {
+        /**
+         * @return the http status code, or 0 if the cloud could not be reached.
+         */
+        int send(String url, String body);
+    }
+
+    private final File directory;
+    private final long maxSegmentSize;
+    private final ExecutorService diskExecutor;
+
+    // replay position
+    private long ackSegment;
+    private long ackOffset;
+    // segment that is appended to
+    private long writeSegment;
+    private long writeOffset;
+    //changed holding the lock, read without it
+    private volatile int pendingCount;
+
+    /**
+     * Open the outbox in the application private files directory.
+     *
+     * @param context the context used to locate the files directory.
+     * @throws IOException if the outbox directory cannot be created or read.
+     */
+    public DataOutbox(Context context) throws IOException {
+        this(new File(context.getFilesDir(), DEFAULT_DIRECTORY), DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open the outbox in the given directory. The existing segment files are read and checked
+     * before this returns.
+     *
+     * @param directory      the directory for the segment and acknowledgement files.
+     * @param maxSegmentSize size in bytes after which a new segment file is started.
+     * @throws IOException if the outbox directory cannot be created or read.
+     */
+    public DataOutbox(File directory, long maxSegmentSize) throws IOException {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create outbox directory " + directory);
+        }
+        this.diskExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        recover();
+    }
+
+    /**
+     * @return number of stored requests that have not been replayed yet.
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Store a request for later replay. The write happens on the outbox thread.
+     *
+     * @param url  the url the request has to be sent to.
+     * @param body the http body of the request.
+     */
+    public void append(final String url, final String body) {
+        try {
+            diskExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        appendRecord(url, body);
+                    } catch (IOException ie) {
+                        Log.e(TAG, "cannot store request in outbox: " + ie.toString());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            Log.e(TAG, "outbox is closed, request not stored");
+        }
+    }
+
+    /**
+     * Send the stored requests oldest first, on the outbox thread; requests appended before this
+     * call are sent too. The replay stops at the first request the sender cannot deliver for now,
+     * that is when it returns 0, 401, 408, 429 or a 5xx code, and keeps it for the next replay; a
+     * request rejected with another client error, such as 400 or 404, is dropped.
+     *
+     * @param sender sends one request to the cloud.
+     */
+    public void replay(final Sender sender) {
+        try {
+            diskExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        replayRecords(sender);
+                    } catch (IOException ie) {
+                        Log.e(TAG, "cannot replay outbox: " + ie.toString());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            Log.e(TAG, "outbox is closed, not replayed");
+        }
+    }
+
+    /**
+     * Finish the queued appends and replays and stop the outbox thread. Requests appended after
+     * close are not stored; open a new outbox on the same directory to use it again.
+     *
+     * @throws InterruptedException if interrupted while waiting for the outbox thread.
+     */
+    public void close() throws InterruptedException {
+        diskExecutor.shutdown();
+        diskExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void appendRecord(String url, String body) throws IOException {
+        byte[] payload = (url + "\n" + body).getBytes(ENCODING);
+        if (writeOffset > 0 && writeOffset + HEADER_SIZE + payload.length > maxSegmentSize) {
+            writeSegment++;
+            writeOffset = 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        byte[] record = new byte[HEADER_SIZE + payload.length];
+        writeInt(record, 0, payload.length);
+        writeLong(record, 4, crc.getValue());
+        System.arraycopy(payload, 0, record, HEADER_SIZE, payload.length);
+        FileOutputStream outputStream = new FileOutputStream(segmentFile(writeSegment), true);
+        try {
+            outputStream.write(record);
+            outputStream.getFD().sync();
+        } catch (IOException ie) {
+            //drop the partially written record so that the next append starts at a record boundary
+            outputStream.getChannel().truncate(writeOffset);
+            throw ie;
+        } finally {
+            outputStream.close();
+        }
+        writeOffset += record.length;
+        pendingCount++;
+    }
+
+    private void replayRecords(Sender sender) throws IOException {
+        while (true) {
+            long segment;
+            long offset;
+            synchronized (this) {
+                if (pendingCount == 0) {
+                    compact();
+                    return;
+                }
+                segment = ackSegment;
+                offset = ackOffset;
+            }
+            File file = segmentFile(segment);
+            if (!file.exists() || offset >= file.length()) {
+                //segment fully replayed, move on to the next one
+                skipSegment(segment);
+                continue;
+            }
+            RandomAccessFile segmentFile = new RandomAccessFile(file, "r");
+            String payload;
+            long nextOffset;
+            try {
+                segmentFile.seek(offset);
+                payload = readRecord(segmentFile);
+                nextOffset = segmentFile.getFilePointer();
+            } finally {
+                segmentFile.close();
+            }
+            if (payload == null) {
+                Log.w(TAG, "unreadable record in " + file.getName() + ", skipping rest of segment");
+                skipSegment(segment);
+                continue;
+            }
+            if (payload == CORRUPTED_RECORD) {
+                //not counted as pending when the outbox was opened
+                Log.w(TAG, "corrupted record in " + file.getName() + ", skipping it");
+                advance(segment, nextOffset, false);
+                continue;
+            }
+            int separator = payload.indexOf('\n');
+            int code = sender.send(payload.substring(0, separator), payload.substring(separator + 1));
+            if (isTransient(code)) {
+                //cloud not reachable, not healthy or not accepting the request yet, keep the
+                //record and try again later
+                Log.d(TAG, "outbox replay stopped, response code " + code);
+                return;
+            }
+            if (code >= 300) {
+                Log.w(TAG, "outbox record rejected by cloud with code " + code + ", dropping it");
+            }
+            advance(segment, nextOffset, true);
+        }
+    }
+
+    //failures that can go away by themselves: no connection, expired token, timeout, rate limit
+    //or server error
+    private static boolean isTransient(int code) {
+        return code == 0 || code == 401 || code == 408 || code == 429 || code >= 500;
+    }
+
+    private synchronized void skipSegment(long segment) throws IOException {
+        if (segment >= writeSegment) {
+            //nothing readable is left up to the write position, the pending count was stale
+            pendingCount = 0;
+            advance(writeSegment, writeOffset, false);
+            return;
+        }
+        advance(segment + 1, 0, false);
+    }
+
+    private synchronized void advance(long segment, long offset, boolean acknowledged) throws IOException {
+        long previousSegment = ackSegment;
+        ackSegment = segment;
+        ackOffset = offset;
+        if (acknowledged) {
+            pendingCount--;
+        }
+        writeAck();
+        if (segment != previousSegment) {
+            compact();
+        }
+    }
+
+    //deletes acknowledged segments, and the write segment once everything is replayed
+    private synchronized void compact() throws IOException {
+        for (long segment : listSegments()) {
+            if (segment < ackSegment) {
+                deleteSegment(segment);
+            }
+        }
+        if (pendingCount == 0 && ackSegment == writeSegment && ackOffset == writeOffset && writeOffset > 0) {
+            deleteSegment(writeSegment);
+            writeSegment++;
+            writeOffset = 0;
+            ackSegment = writeSegment;
+            ackOffset = 0;
+            writeAck();
+        }
+    }
+
+    //rebuilds the in memory positions from the files, truncating a torn tail record of the write segment
+    private synchronized void recover() throws IOException {
+        readAck();
+        long[] segments = listSegments();
+        writeSegment = segments.length > 0 ? Math.max(segments[segments.length - 1], ackSegment) : ackSegment;
+        writeOffset = 0;
+        pendingCount = 0;
+        for (long segment : segments) {
+            if (segment < ackSegment) {
+                deleteSegment(segment);
+                continue;
+            }
+            RandomAccessFile segmentFile = new RandomAccessFile(segmentFile(segment), "rw");
+            try {
+                long validLength = 0;
+                String payload;
+                while ((payload = readRecord(segmentFile)) != null) {
+                    long position = segmentFile.getFilePointer();
+                    if (payload == CORRUPTED_RECORD) {
+                        Log.w(TAG, "corrupted record in " + segmentFile(segment).getName() + " at " + validLength);
+                    } else if (segment > ackSegment || position > ackOffset) {
+                        pendingCount++;
+                    }
+                    validLength = position;
+                }
+                if (validLength < segmentFile.length()) {
+                    if (segment == writeSegment) {
+                        //crash while appending, the next append starts at the end of the last good record
+                        Log.w(TAG, "truncating torn record in " + segmentFile(segment).getName());
+                        segmentFile.setLength(validLength);
+                    } else {
+                        //left on disk, the replay skips the rest of this segment
+                        Log.e(TAG, "unreadable records in " + segmentFile(segment).getName()
+                                + " after " + validLength + ", " + (segmentFile.length() - validLength) + " bytes skipped");
+                    }
+                }
+                if (segment == writeSegment) {
+                    writeOffset = validLength;
+                }
+            } finally {
+                segmentFile.close();
+            }
+        }
+        if (ackSegment == writeSegment && ackOffset > writeOffset) {
+            ackOffset = writeOffset;
+        }
+    }
+
+    //returns the payload of the record at the current position, CORRUPTED_RECORD if its checksum does
+    //not match, or null at the end of the segment or if the record length cannot be trusted
+    private String readRecord(RandomAccessFile segmentFile) throws IOException {
+        long remaining = segmentFile.length() - segmentFile.getFilePointer();
+        if (remaining < HEADER_SIZE) {
+            return null;
+        }
+        int length = segmentFile.readInt();
+        long checksum = segmentFile.readLong();
+        if (length < 0 || length > MAX_RECORD_SIZE || length > remaining - HEADER_SIZE) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        segmentFile.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (crc.getValue() != checksum) {
+            return CORRUPTED_RECORD;
+        }
+        return new String(payload, ENCODING);
+    }
+
+    private void readAck() throws IOException {
+        ackSegment = 0;
+        ackOffset = 0;
+        File ackFile = new File(directory, ACK_FILE);
+        if (!ackFile.exists()) {
+            return;
+        }
+        RandomAccessFile file = new RandomAccessFile(ackFile, "r");
+        try {
+            if (file.length() == 16) {
+                ackSegment = file.readLong();
+                ackOffset = file.readLong();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    //written to a temporary file and renamed, so the acknowledgement is replaced atomically
+    private void writeAck() throws IOException {
+        File tempFile = new File(directory, ACK_FILE + ".tmp");
+        byte[] ack = new byte[16];
+        writeLong(ack, 0, ackSegment);
+        writeLong(ack, 8, ackOffset);
+        FileOutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            outputStream.write(ack);
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+        if (!tempFile.renameTo(new File(directory, ACK_FILE))) {
+            throw new IOException("cannot update outbox acknowledgement");
+        }
+    }
+
+    private long[] listSegments() {
+        String[] names = directory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        List<Long> segments = new ArrayList<Long>();
+        for (int i = 0; names != null && i < names.length; i++) {
+            try {
+                segments.add(Long.parseLong(names[i].substring(SEGMENT_PREFIX.length(),
+                        names[i].length() - SEGMENT_SUFFIX.length())));
+            } catch (NumberFormatException nfe) {
+                Log.w(TAG, "ignoring unknown file " + names[i]);
+            }
+        }
+        long[] sorted = new long[segments.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = segments.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void deleteSegment(long segment) {
+        File file = segmentFile(segment);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "cannot delete " + file.getName());
+        }
+    }
+
+    private File segmentFile(long segment) {
+        return new File(directory, SEGMENT_PREFIX + String.format("%020d", segment) + SEGMENT_SUFFIX);
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[offset + i] = (byte) (value >>> (24 - 8 * i));
+        }
+    }
+
+    private static void writeLong(byte[] buffer, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            buffer[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+}
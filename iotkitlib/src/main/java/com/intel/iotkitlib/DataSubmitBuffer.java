@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib;
+
+import android.util.Log;
+
+import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.models.Observation;
+
+import org.json.JSONException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers observations in memory and submits them in batches through
+ * {@link DataManagement#submitDataBatch}, so that a busy device sends one request per batch
+ * instead of one request per sample.
+ * <p/>
+ * A flush happens on a background thread when the number of buffered observations reaches the
+ * flush size, or when the oldest buffered observation has waited for the flush interval.
+ */
+public class DataSubmitBuffer {
+    private final static String TAG = "DataSubmitBuffer";
+
+    // Errors
+    public final static String ERR_CLOSED = "Buffer is closed, observation not accepted";
+    public final static String ERR_INVALID_CONFIG = "flush size, flush interval and capacity must be positive";
+
+    /**
+     * What to do with a new observation when the buffer is at capacity.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discard the oldest buffered observation to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the new observation.
+         */
+        DROP_NEWEST,
+        /**
+         * Block the caller until a flush makes room for the new observation.
+         */
+        BLOCK
+    }
+
+    private final DataManagement dataManagement;
+    private final RequestStatusHandler statusHandler;
+    private final String deviceId;
+    private final int flushSize;
+    private final long flushInterval;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final ArrayDeque<Observation> observations;
+    private final ScheduledExecutorService flushExecutor;
+    private ScheduledFuture<?> pendingFlush;
+    private boolean pendingFlushDelayed;
+    private boolean closed;
+    private long droppedCount;
+
+    /**
+     * Buffer observations for the current device.
+     *
+     * @param flushSize      number of buffered observations that triggers a flush; this is also
+     *                       the maximum number of observations sent in one request.
+     * @param flushInterval  maximum time in milliseconds an observation waits in the buffer.
+     * @param capacity       maximum number of observations held in the buffer.
+     * @param overflowPolicy what to do with a new observation when the buffer is full.
+     * @param statusHandler  The handler that gets the cloud response of each flush. It is called
+     *                       on the flush thread; it can be null.
+     */
+    public DataSubmitBuffer(int flushSize, long flushInterval, int capacity,
+                            OverflowPolicy overflowPolicy, RequestStatusHandler statusHandler) {
+        this(null, flushSize, flushInterval, capacity, overflowPolicy, statusHandler);
+    }
+
+    /**
+     * Buffer observations for a specific device.
+     *
+     * @param deviceId       the identifier for the device to submit the data for.
+     * @param flushSize      number of buffered observations that triggers a flush; this is also
+     *                       the maximum number of observations sent in one request.
+     * @param flushInterval  maximum time in milliseconds an observation waits in the buffer.
+     * @param capacity       maximum number of observations held in the buffer.
+     * @param overflowPolicy what to do with a new observation when the buffer is full.
+     * @param statusHandler  The handler that gets the cloud response of each flush. It is called
+     *                       on the flush thread; it can be null.
+     */
+    public DataSubmitBuffer(String deviceId, int flushSize, long flushInterval, int capacity,
+                            OverflowPolicy overflowPolicy, RequestStatusHandler statusHandler) {
+        if (flushSize <= 0 || flushInterval <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException(ERR_INVALID_CONFIG);
+        }
+        this.deviceId = deviceId;
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.statusHandler = statusHandler;
+        //requests are issued synchronously from the flush thread
+        this.dataManagement = new DataManagement();
+        this.observations = new ArrayDeque<Observation>(Math.min(capacity, 1024));
+        this.flushExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Keep batches that fail because the cloud cannot be reached in an on-disk outbox.
+     *
+     * @param outbox the outbox to store failed batches in; null disables it.
+     * @see DataManagement#setOutbox(DataOutbox)
+     */
+    public void setOutbox(DataOutbox outbox) {
+        dataManagement.setOutbox(outbox);
+    }
+
+    /**
+     * Add a sample taken now for a component of the device.
+     *
+     * @param componentName  the name of the component to look up the component id.
+     * @param componentValue the value to set for the component.
+     * @param latitude       lat location for the device in decimal
+     * @param longitude      lon location for the device in decimal
+     * @param height         altitude value in meters
+     * @return true if the observation was buffered; false if it was dropped or the buffer is closed.
+     */
+    public boolean submitData(String componentName, String componentValue,
+                              Double latitude, Double longitude, Double height) {
+        Observation observation = new Observation(componentName, componentValue);
+        observation.setLocation(latitude, longitude, height);
+        return add(observation);
+    }
+
+    /**
+     * Add an observation to the buffer.
+     *
+     * @param observation the observation to buffer.
+     * @return true if the observation was buffered; false if it was dropped or the buffer is closed.
+     */
+    public synchronized boolean add(Observation observation) {
+        if (closed) {
+            Log.d(TAG, ERR_CLOSED);
+            return false;
+        }
+        while (observations.size() >= capacity) {
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                droppedCount++;
+                return false;
+            } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                observations.pollFirst();
+                droppedCount++;
+            } else {
+                scheduleFlush(0);
+                try {
+                    wait();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                if (closed) {
+                    Log.d(TAG, ERR_CLOSED);
+                    return false;
+                }
+            }
+        }
+        observations.addLast(observation);
+        if (observations.size() >= flushSize) {
+            scheduleFlush(0);
+        } else if (observations.size() == 1) {
+            scheduleFlush(flushInterval);
+        }
+        return true;
+    }
+
+    /**
+     * Submit all buffered observations now, on the flush thread.
+     */
+    public synchronized void flush() {
+        if (!observations.isEmpty()) {
+            scheduleFlush(0);
+        }
+    }
+
+    /**
+     * Submit the remaining observations and stop the flush thread. Observations added after
+     * close are rejected.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        flushExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+        flushExecutor.shutdown();
+    }
+
+    /**
+     * @return number of observations currently waiting in the buffer.
+     */
+    public synchronized int size() {
+        return observations.size();
+    }
+
+    /**
+     * @return number of observations discarded because the buffer was full.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    //must be called holding the lock
+    private void scheduleFlush(long delay) {
+        if (flushExecutor.isShutdown()) {
+            return;
+        }
+        if (pendingFlush != null) {
+            //an immediate flush replaces a pending timed one
+            if (delay > 0 || !pendingFlushDelayed || !pendingFlush.cancel(false)) {
+                return;
+            }
+        }
+        pendingFlushDelayed = delay > 0;
+        pendingFlush = flushExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (DataSubmitBuffer.this) {
+                    pendingFlush = null;
+                }
+                drain();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    //runs on the flush thread, sends the buffer content in batches of at most flushSize
+    private void drain() {
+        List<Observation> batch;
+        while ((batch = takeBatch()) != null) {
+            CloudResponse response;
+            try {
+                response = dataManagement.submitDataBatch(deviceId, batch);
+            } catch (JSONException je) {
+                Log.e(TAG, je.toString());
+                response = new CloudResponse(false, je.getMessage());
+            }
+            if (statusHandler != null) {
+                statusHandler.readResponse(response);
+            }
+        }
+    }
+
+    private synchronized List<Observation> takeBatch() {
+        if (observations.isEmpty()) {
+            return null;
+        }
+        int batchSize = Math.min(flushSize, observations.size());
+        List<Observation> batch = new ArrayList<Observation>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(observations.pollFirst());
+        }
+        //room was made for blocked producers
+        notifyAll();
+        return batch;
+    }
+}
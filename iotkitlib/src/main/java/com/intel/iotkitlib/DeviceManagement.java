@@ -85,7 +85,7 @@ public class DeviceManagement extends ParentModule {
     public CloudResponse getDeviceList() {
         //initiating get for device list
         HttpGetTask listDevices = new HttpGetTask();
-        listDevices.setHeaders(basicHeaderList);
+        listDevices.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.listDevices, null);
         return super.invokeHttpExecuteOnURL(url, listDevices);
     }
@@ -119,7 +119,7 @@ public class DeviceManagement extends ParentModule {
             }
         };
 
-        createNewDevice.setHeaders(basicHeaderList);
+        createNewDevice.setHeaders(getBasicHeaders());
         createNewDevice.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.createDevice, null);
         return super.invokeHttpExecuteOnURL(url, createNewDevice, preProcessing);
@@ -136,7 +136,7 @@ public class DeviceManagement extends ParentModule {
     public CloudResponse getInfoOnDevice(String deviceId) {
         //initiating get for device info
         HttpGetTask getDeviceDetails = new HttpGetTask();
-        getDeviceDetails.setHeaders(basicHeaderList);
+        getDeviceDetails.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("other_device_id", deviceId);
         String url = objIotKit.prepareUrl(objIotKit.getOneDeviceInfo, linkedHashMap);
@@ -154,7 +154,7 @@ public class DeviceManagement extends ParentModule {
     public CloudResponse getMyDeviceInfo() {
         //initiating get for device info
         HttpGetTask getDeviceDetails = new HttpGetTask();
-        getDeviceDetails.setHeaders(basicHeaderList);
+        getDeviceDetails.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.getMyDeviceInfo, null);
         return super.invokeHttpExecuteOnURL(url, getDeviceDetails);
     }
@@ -177,7 +177,7 @@ public class DeviceManagement extends ParentModule {
         }
         //initiating put for device updation
         HttpPutTask updateDevice = new HttpPutTask();
-        updateDevice.setHeaders(basicHeaderList);
+        updateDevice.setHeaders(getBasicHeaders());
         updateDevice.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.updateDevice, null);
         return super.invokeHttpExecuteOnURL(url, updateDevice);
@@ -195,7 +195,7 @@ public class DeviceManagement extends ParentModule {
     public CloudResponse deleteADevice(String deviceId) {
         //initiating delete of device
         HttpDeleteTask deleteADevice = new HttpDeleteTask();
-        deleteADevice.setHeaders(basicHeaderList);
+        deleteADevice.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("other_device_id", deviceId);
         String url = objIotKit.prepareUrl(objIotKit.deleteDevice, linkedHashMap);
@@ -231,7 +231,7 @@ public class DeviceManagement extends ParentModule {
             }
         };
 
-        List<NameValuePair> submitDataHeaders = Utilities.createBasicHeadersWithDeviceToken();
+        List<NameValuePair> submitDataHeaders = getDeviceTokenHeaders();
         if (submitDataHeaders == null) {
             Log.d(TAG, ERR_INVALID_CREATE);
             return new CloudResponse(false, ERR_INVALID_CREATE);
@@ -255,11 +255,17 @@ public class DeviceManagement extends ParentModule {
     public CloudResponse deleteAComponent(final String componentName) {
         //initiating delete of component
         HttpDeleteTask deleteComponent = new HttpDeleteTask();
-        deleteComponent.setHeaders(basicHeaderList);
+        RequestStatusHandler preProcessing = new RequestStatusHandler() {
+            @Override
+            public void readResponse(CloudResponse response) {
+                DeviceToken.deleteTheComponentFromStorage(componentName, response.getCode());
+            }
+        };
+        deleteComponent.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("cname", componentName);
         String url = objIotKit.prepareUrl(objIotKit.deleteComponent, linkedHashMap);
-        return super.invokeHttpExecuteOnURL(url, deleteComponent);
+        return super.invokeHttpExecuteOnURL(url, deleteComponent, preProcessing);
     }
 
     /**
@@ -298,7 +304,7 @@ public class DeviceManagement extends ParentModule {
             }
         };
 
-        activateDevice.setHeaders(basicHeaderList);
+        activateDevice.setHeaders(getBasicHeaders());
         activateDevice.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.activateDevice, null);
         return super.invokeHttpExecuteOnURL(url, activateDevice, preProcessing);
@@ -314,7 +320,7 @@ public class DeviceManagement extends ParentModule {
     public CloudResponse getAllAttributes() {
         //initiating get for all attributes
         HttpGetTask listAttributes = new HttpGetTask();
-        listAttributes.setHeaders(basicHeaderList);
+        listAttributes.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.listAllAttributes, null);
         return super.invokeHttpExecuteOnURL(url, listAttributes);
     }
@@ -329,7 +335,7 @@ public class DeviceManagement extends ParentModule {
     public CloudResponse getAllTags() {
         //initiating get for all tags
         HttpGetTask listTags = new HttpGetTask();
-        listTags.setHeaders(basicHeaderList);
+        listTags.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.listAllTags, null);
         return super.invokeHttpExecuteOnURL(url, listTags);
     }
@@ -78,7 +78,7 @@ public class InvitationManagement extends ParentModule {
     public CloudResponse getListOfInvitation() {
         //initiating get for invitation list
         HttpGetTask listInvitation = new HttpGetTask();
-        listInvitation.setHeaders(basicHeaderList);
+        listInvitation.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.getInvitationList, null);
         return super.invokeHttpExecuteOnURL(url, listInvitation);
     }
@@ -98,7 +98,7 @@ public class InvitationManagement extends ParentModule {
         }
         //initiating get for invitation list send to specific user
         HttpGetTask listInvitationToSpecificUser = new HttpGetTask();
-        listInvitationToSpecificUser.setHeaders(basicHeaderList);
+        listInvitationToSpecificUser.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("email", emailId);
         String url = objIotKit.prepareUrl(objIotKit.getInvitationListSendToSpecificUser, linkedHashMap);
@@ -121,7 +121,7 @@ public class InvitationManagement extends ParentModule {
         }
         //initiating delete for invitation deletion
         HttpDeleteTask deleteTheInvitations = new HttpDeleteTask();
-        deleteTheInvitations.setHeaders(basicHeaderList);
+        deleteTheInvitations.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("email", emailId);
         String url = objIotKit.prepareUrl(objIotKit.deleteInvitations, linkedHashMap);
@@ -148,7 +148,7 @@ public class InvitationManagement extends ParentModule {
         }
         //initiating post for  invitation creation
         HttpPostTask createInvitation = new HttpPostTask();
-        createInvitation.setHeaders(basicHeaderList);
+        createInvitation.setHeaders(getBasicHeaders());
         createInvitation.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.createInvitation, null);
         return super.invokeHttpExecuteOnURL(url, createInvitation);
@@ -25,14 +25,17 @@ package com.intel.iotkitlib;
 import android.os.AsyncTask;
 import android.util.Log;
 
+import com.intel.iotkitlib.http.AbstractHttpTask;
 import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.http.CloudResponseHandler;
 import com.intel.iotkitlib.http.HttpDeleteTask;
 import com.intel.iotkitlib.http.HttpGetTask;
 import com.intel.iotkitlib.http.HttpPostTask;
 import com.intel.iotkitlib.http.HttpTask;
-import com.intel.iotkitlib.http.HttpTaskHandler;
+import com.intel.iotkitlib.http.RequestTimeouts;
+import com.intel.iotkitlib.http.SingleFlightTask;
 import com.intel.iotkitlib.utils.IotKit;
-import com.intel.iotkitlib.utils.Utilities;
+import com.intel.iotkitlib.utils.SessionState;
 
 import org.apache.http.NameValuePair;
 
@@ -50,12 +53,54 @@ public class ParentModule {
 
     protected RequestStatusHandler statusHandler;
     protected IotKit objIotKit;
-    protected List<NameValuePair> basicHeaderList;
+    protected RequestTimeouts timeouts;
 
     protected ParentModule(RequestStatusHandler statusHandler) {
         this.statusHandler = statusHandler;
         objIotKit = IotKit.getInstance();
-        basicHeaderList = Utilities.createBasicHeadersWithBearerToken();
+        timeouts = objIotKit.getTimeouts(getClass().getSimpleName());
+    }
+
+    /**
+     * Limit the time the requests of this module may take, instead of the limits from the
+     * "timeouts" settings in config.json. A request whose deadline expires is aborted and its
+     * response, with code 0 and {@link RequestTimeouts#ERR_DEADLINE_EXCEEDED}, is returned or
+     * passed to the {@link RequestStatusHandler}. A task with limits of its own, set with
+     * {@link AbstractHttpTask#setTimeouts}, keeps them.
+     *
+     * @param timeouts the time limits for the next requests; null uses the configured limits.
+     */
+    public void setTimeouts(RequestTimeouts timeouts) {
+        this.timeouts = timeouts != null ? timeouts : objIotKit.getTimeouts(getClass().getSimpleName());
+    }
+
+    public RequestTimeouts getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return the content type and authorization headers for the current auth token, taken
+     * when the request is built so that a refreshed token is used right away; null if the
+     * session is not loaded. The list is shared and cannot be modified.
+     */
+    protected List<NameValuePair> getBasicHeaders() {
+        if (!SessionState.getInstance().isLoaded()) {
+            Log.w(TAG, "cannot find shared preferences object, not able to take bearer token");
+            return null;
+        }
+        return SessionState.getInstance().getAuthTokenHeaders();
+    }
+
+    /**
+     * @return the content type and authorization headers for the current device token; null if
+     * the session is not loaded. The list is shared and cannot be modified.
+     */
+    List<NameValuePair> getDeviceTokenHeaders() {
+        if (!SessionState.getInstance().isLoaded()) {
+            Log.w(TAG, "cannot find shared preferences object, not able to take device token");
+            return null;
+        }
+        return SessionState.getInstance().getDeviceTokenHeaders();
     }
 
     protected CloudResponse invokeHttpExecuteOnURL(String url, HttpTask httpTask) {
@@ -63,13 +108,14 @@ public class ParentModule {
             Log.e(TAG, ERR_INVALID_URL);
             return new CloudResponse(false, ERR_INVALID_URL);
         }
+        httpTask = coalesce(limit(httpTask));
 
         // Async mode
         if (this.statusHandler != null) {
-            return httpTask.doAsync(url, new HttpTaskHandler() {
+            return httpTask.doAsync(url, new CloudResponseHandler() {
                 @Override
-                public void taskResponse(int responseCode, String response) {
-                    statusHandler.readResponse(new CloudResponse(responseCode, response));
+                public void taskResponse(CloudResponse cloudResponse) {
+                    statusHandler.readResponse(cloudResponse);
                 }
             });
         } else {
@@ -84,13 +130,13 @@ public class ParentModule {
             Log.e(TAG, ERR_INVALID_URL);
             return new CloudResponse(false, ERR_INVALID_URL);
         }
+        httpTask = coalesce(limit(httpTask));
 
         // Async mode
         if (this.statusHandler != null) {
-            return httpTask.doAsync(url, new HttpTaskHandler() {
+            return httpTask.doAsync(url, new CloudResponseHandler() {
                 @Override
-                public void taskResponse(int responseCode, String response) {
-                    CloudResponse cloudResponse = new CloudResponse(responseCode, response);
+                public void taskResponse(CloudResponse cloudResponse) {
                     preProcessing.readResponse(cloudResponse);
                     statusHandler.readResponse(cloudResponse);
                 }
@@ -102,4 +148,20 @@ public class ParentModule {
             return response;
         }
     }
+
+    //module limits for the tasks that do not have their own
+    private HttpTask limit(HttpTask httpTask) {
+        if (httpTask instanceof AbstractHttpTask && !((AbstractHttpTask) httpTask).hasTimeouts()) {
+            ((AbstractHttpTask) httpTask).setTimeouts(timeouts);
+        }
+        return httpTask;
+    }
+
+    //identical GETs in flight at the same time share one network call
+    private HttpTask coalesce(HttpTask httpTask) {
+        if (objIotKit.coalesceGetRequests && SingleFlightTask.canCoalesce(httpTask)) {
+            return new SingleFlightTask((HttpGetTask) httpTask);
+        }
+        return httpTask;
+    }
 }
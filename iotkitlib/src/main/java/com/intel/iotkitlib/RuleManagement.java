@@ -87,8 +87,7 @@ public class RuleManagement extends ParentModule {
             Log.d(TAG, "Not able to access shared pref editor object to store ruleId");
         }
         Log.d(TAG, "rule id extracted from server response" + ruleJson.getString("externalId"));
-        Utilities.editor.putString("ruleId", ruleJson.getString("externalId"));
-        Utilities.editor.commit();
+        Utilities.storePreference("ruleId", ruleJson.getString("externalId"));
     }
 
     public static void parseAndStoreDraftRuleId(String response, int responseCode) throws JSONException {
@@ -100,8 +99,7 @@ public class RuleManagement extends ParentModule {
         if (Utilities.editor == null) {
             Log.d(TAG, "Not able to access shared pref editor object to store ruleId");
         }
-        Utilities.editor.putString("DraftRuleId", ruleJson.getString("externalId"));
-        Utilities.editor.commit();
+        Utilities.storePreference("DraftRuleId", ruleJson.getString("externalId"));
     }
 
     /**
@@ -115,7 +113,7 @@ public class RuleManagement extends ParentModule {
     public CloudResponse getListOfRules() {
         //initiating get for list of rules
         HttpGetTask listOfRules = new HttpGetTask();
-        listOfRules.setHeaders(basicHeaderList);
+        listOfRules.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.getListOfRules, null);
         return super.invokeHttpExecuteOnURL(url, listOfRules);
     }
@@ -136,7 +134,7 @@ public class RuleManagement extends ParentModule {
         }
         //initiating get for rule info
         HttpGetTask infoOnRule = new HttpGetTask();
-        infoOnRule.setHeaders(basicHeaderList);
+        infoOnRule.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("rule_id", ruleId);
         String url = objIotKit.prepareUrl(objIotKit.getInfoOfRule, linkedHashMap);
@@ -159,7 +157,7 @@ public class RuleManagement extends ParentModule {
         }
         //initiating delete for draft rule
         HttpDeleteTask deleteDraftRule = new HttpDeleteTask();
-        deleteDraftRule.setHeaders(basicHeaderList);
+        deleteDraftRule.setHeaders(getBasicHeaders());
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("rule_id", ruleId);
         String url = objIotKit.prepareUrl(objIotKit.deleteDraftRule, linkedHashMap);
@@ -193,7 +191,7 @@ public class RuleManagement extends ParentModule {
         }
         //initiating put for rule status update
         HttpPutTask createInvitation = new HttpPutTask();
-        createInvitation.setHeaders(basicHeaderList);
+        createInvitation.setHeaders(getBasicHeaders());
         createInvitation.setRequestBody(body);
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("rule_id", ruleId);
@@ -222,7 +220,7 @@ public class RuleManagement extends ParentModule {
         }
         //initiating put for draft rule creation
         HttpPutTask createDraftRule = new HttpPutTask();
-        createDraftRule.setHeaders(basicHeaderList);
+        createDraftRule.setHeaders(getBasicHeaders());
         createDraftRule.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.createRuleAsDraft, null);
         RequestStatusHandler preProcessing = new RequestStatusHandler() {
@@ -262,7 +260,7 @@ public class RuleManagement extends ParentModule {
         }
         //initiating put for rule updation
         HttpPutTask updateRule = new HttpPutTask();
-        updateRule.setHeaders(basicHeaderList);
+        updateRule.setHeaders(getBasicHeaders());
         updateRule.setRequestBody(body);
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("rule_id", ruleId);
@@ -291,7 +289,7 @@ public class RuleManagement extends ParentModule {
         }
         //initiating post for rule creation
         HttpPostTask createRule = new HttpPostTask();
-        createRule.setHeaders(basicHeaderList);
+        createRule.setHeaders(getBasicHeaders());
         createRule.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.createRule, null);
         RequestStatusHandler preProcessing = new RequestStatusHandler() {
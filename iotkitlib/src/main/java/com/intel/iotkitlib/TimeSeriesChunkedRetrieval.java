@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib;
+
+import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.http.HttpTaskExecutor;
+import com.intel.iotkitlib.models.TimeSeries;
+import com.intel.iotkitlib.models.TimeSeriesData;
+import com.intel.iotkitlib.models.TimeSeriesDecoder;
+import com.intel.iotkitlib.models.TimeSeriesResult;
+import com.intel.iotkitlib.utils.IotKitLog;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Splits a data search into time windows and device groups, fetches the chunks concurrently
+ * on the library executor and merges the per component series back into one
+ * {@link TimeSeriesResult}.
+ * <p/>
+ * At most parallelism chunks are queued at a time; each finished chunk queues the next one,
+ * so no thread waits for the retrieval as a whole. A retrieval is run once.
+ */
+class TimeSeriesChunkedRetrieval {
+    private final static String TAG = "TimeSeriesChunkedRetrieval";
+
+    // Errors
+    final static String ERR_INTERRUPTED = "Chunked data retrieval interrupted";
+
+    interface ProgressListener {
+        void onProgress(int completedChunks, int totalChunks);
+    }
+
+    interface CompletionListener {
+        void onComplete(CloudResponse response);
+    }
+
+    private final TimeSeriesData criteria;
+    private final long chunkDuration;
+    private final int devicesPerChunk;
+    private final int parallelism;
+    private final DataManagement dataManagement = new DataManagement();
+
+    private List<TimeSeriesData> chunks;
+    private TimeSeriesResult[] results;
+    private ProgressListener progressListener;
+    private CompletionListener completionListener;
+    private int nextChunk;
+    private int completedChunks;
+    private boolean finished;
+
+    TimeSeriesChunkedRetrieval(TimeSeriesData criteria, long chunkDuration, int devicesPerChunk, int parallelism) {
+        this.criteria = criteria;
+        this.chunkDuration = chunkDuration > 0 ? chunkDuration : Long.MAX_VALUE;
+        this.devicesPerChunk = devicesPerChunk > 0 ? devicesPerChunk : Integer.MAX_VALUE;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    //time windows are the outer loop, so chunk order is timestamp order for every component
+    List<TimeSeriesData> split() {
+        List<TimeSeriesData> chunks = new ArrayList<TimeSeriesData>();
+        List<String> devices = criteria.getDeviceList();
+        long from = criteria.getFromTimeInMillis();
+        long to = criteria.getToTimeInMillis();
+        for (long start = from; ; ) {
+            long end = to - start < chunkDuration ? to : start + chunkDuration - 1;
+            for (int first = 0; first < devices.size(); first += devicesPerChunk) {
+                TimeSeriesData chunk = new TimeSeriesData(start, end);
+                for (String deviceId : devices.subList(first, Math.min(devices.size(), first + devicesPerChunk))) {
+                    chunk.addDeviceId(deviceId);
+                }
+                for (String componentId : criteria.getComponentIdList()) {
+                    chunk.addComponentId(componentId);
+                }
+                chunks.add(chunk);
+            }
+            if (end >= to) {
+                break;
+            }
+            start = end + 1;
+        }
+        return chunks;
+    }
+
+    /**
+     * Fetch all chunks and wait for them. Stops at the first chunk that fails; chunks that have
+     * not been queued yet are then not fetched.
+     *
+     * @return the merged result, or the response of the first failed chunk.
+     */
+    CloudResponse run(ProgressListener progressListener) {
+        final CloudResponse[] response = new CloudResponse[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        start(progressListener, new CompletionListener() {
+            @Override
+            public void onComplete(CloudResponse completed) {
+                response[0] = completed;
+                done.countDown();
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            finish(new CloudResponse(false, ERR_INTERRUPTED));
+            return new CloudResponse(false, ERR_INTERRUPTED);
+        }
+        return response[0];
+    }
+
+    /**
+     * Start fetching the chunks and return right away. The listeners are called on executor
+     * threads; the completion listener gets the merged result or the response of the first
+     * failed chunk, once.
+     */
+    void start(ProgressListener progressListener, CompletionListener completionListener) {
+        List<TimeSeriesData> split = split();
+        synchronized (this) {
+            if (chunks != null) {
+                throw new IllegalStateException("chunked retrieval already started");
+            }
+            this.chunks = split;
+            this.results = new TimeSeriesResult[split.size()];
+            this.progressListener = progressListener;
+            this.completionListener = completionListener;
+        }
+        for (int i = 0; i < Math.min(parallelism, split.size()); i++) {
+            queueNextChunk();
+        }
+    }
+
+    private void queueNextChunk() {
+        final int index;
+        synchronized (this) {
+            if (finished || nextChunk == chunks.size()) {
+                return;
+            }
+            index = nextChunk++;
+        }
+        try {
+            HttpTaskExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    fetchChunk(index);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            IotKitLog.w(TAG, "%s: chunk %d", HttpTaskExecutor.ERR_REJECTED, index);
+            finish(new CloudResponse(false, HttpTaskExecutor.ERR_REJECTED));
+        }
+    }
+
+    private void fetchChunk(int index) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+        }
+        CloudResponse response;
+        try {
+            response = dataManagement.retrieveData(chunks.get(index), new TimeSeriesDecoder());
+        } catch (JSONException je) {
+            IotKitLog.e(TAG, "cannot create chunk request", je);
+            response = new CloudResponse(false, je.getMessage());
+        }
+        if (!(response.getDecodedResponse() instanceof TimeSeriesResult)) {
+            if (IotKitLog.DEBUG) {
+                IotKitLog.d(TAG, "chunk failed with code %d", response.getCode());
+            }
+            finish(response);
+            return;
+        }
+        int completed;
+        int totalChunks = chunks.size();
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            results[index] = (TimeSeriesResult) response.getDecodedResponse();
+            completed = ++completedChunks;
+        }
+        if (progressListener != null) {
+            progressListener.onProgress(completed, totalChunks);
+        }
+        if (completed == totalChunks) {
+            finish(new CloudResponse(200, "", merge(results)));
+        } else {
+            queueNextChunk();
+        }
+    }
+
+    //completes the retrieval once, later chunks are ignored
+    private void finish(CloudResponse response) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+        }
+        completionListener.onComplete(response);
+    }
+
+    private TimeSeriesResult merge(TimeSeriesResult[] results) {
+        Map<String, List<TimeSeries>> pieces = new LinkedHashMap<String, List<TimeSeries>>();
+        for (TimeSeriesResult result : results) {
+            for (TimeSeries series : result.getSeries()) {
+                String key = series.getDeviceId() + "/" + series.getComponentId();
+                List<TimeSeries> componentPieces = pieces.get(key);
+                if (componentPieces == null) {
+                    componentPieces = new ArrayList<TimeSeries>();
+                    pieces.put(key, componentPieces);
+                }
+                componentPieces.add(series);
+            }
+        }
+        List<TimeSeries> merged = new ArrayList<TimeSeries>(pieces.size());
+        for (List<TimeSeries> componentPieces : pieces.values()) {
+            merged.add(concat(componentPieces));
+        }
+        return new TimeSeriesResult(criteria.getFromTimeInMillis(), criteria.getToTimeInMillis(), merged);
+    }
+
+    private static TimeSeries concat(List<TimeSeries> pieces) {
+        TimeSeries first = pieces.get(0);
+        if (pieces.size() == 1 && isSorted(first.getTimestamps())) {
+            return first;
+        }
+        int size = 0;
+        boolean hasLocation = false;
+        for (TimeSeries piece : pieces) {
+            size += piece.size();
+            hasLocation |= piece.hasLocation();
+        }
+        long[] timestamps = new long[size];
+        double[] values = new double[size];
+        double[] latitudes = hasLocation ? new double[size] : null;
+        double[] longitudes = hasLocation ? new double[size] : null;
+        double[] altitudes = hasLocation ? new double[size] : null;
+        int offset = 0;
+        for (TimeSeries piece : pieces) {
+            int length = piece.size();
+            System.arraycopy(piece.getTimestamps(), 0, timestamps, offset, length);
+            System.arraycopy(piece.getValues(), 0, values, offset, length);
+            if (hasLocation) {
+                copyLocation(piece.getLatitudes(), latitudes, offset, length);
+                copyLocation(piece.getLongitudes(), longitudes, offset, length);
+                copyLocation(piece.getAltitudes(), altitudes, offset, length);
+            }
+            offset += length;
+        }
+        if (!isSorted(timestamps)) {
+            Integer[] order = sortedOrder(timestamps);
+            timestamps = permute(timestamps, order);
+            values = permute(values, order);
+            if (hasLocation) {
+                latitudes = permute(latitudes, order);
+                longitudes = permute(longitudes, order);
+                altitudes = permute(altitudes, order);
+            }
+        }
+        return new TimeSeries(first.getDeviceId(), first.getDeviceName(), first.getComponentId(),
+                first.getComponentName(), first.getComponentType(), timestamps, values,
+                latitudes, longitudes, altitudes);
+    }
+
+    private static void copyLocation(double[] source, double[] target, int offset, int length) {
+        if (source != null) {
+            System.arraycopy(source, 0, target, offset, length);
+        } else {
+            Arrays.fill(target, offset, offset + length, Double.NaN);
+        }
+    }
+
+    private static boolean isSorted(long[] timestamps) {
+        for (int i = 1; i < timestamps.length; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //stable, only used when the cloud returned a chunk out of order
+    private static Integer[] sortedOrder(final long[] timestamps) {
+        Integer[] order = new Integer[timestamps.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                long left = timestamps[lhs];
+                long right = timestamps[rhs];
+                return left < right ? -1 : (left == right ? 0 : 1);
+            }
+        });
+        return order;
+    }
+
+    private static long[] permute(long[] column, Integer[] order) {
+        long[] permuted = new long[column.length];
+        for (int i = 0; i < order.length; i++) {
+            permuted[i] = column[order[i]];
+        }
+        return permuted;
+    }
+
+    private static double[] permute(double[] column, Integer[] order) {
+        double[] permuted = new double[column.length];
+        for (int i = 0; i < order.length; i++) {
+            permuted[i] = column[order[i]];
+        }
+        return permuted;
+    }
+}
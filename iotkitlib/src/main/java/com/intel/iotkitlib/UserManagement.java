@@ -31,6 +31,7 @@ import com.intel.iotkitlib.http.HttpPostTask;
 import com.intel.iotkitlib.http.HttpPutTask;
 import com.intel.iotkitlib.models.AuthorizationToken;
 import com.intel.iotkitlib.utils.IotKit;
+import com.intel.iotkitlib.utils.SessionState;
 import com.intel.iotkitlib.utils.Utilities;
 
 import org.apache.http.NameValuePair;
@@ -138,7 +139,7 @@ public class UserManagement extends ParentModule {
             Log.d(TAG, ERR_INVALID_ID);
             return new CloudResponse(false, ERR_INVALID_ID);
         }
-        deleteUser.setHeaders(basicHeaderList);
+        deleteUser.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.deleteUser, createHashMapWithUserID(tempUserId));
         return super.invokeHttpExecuteOnURL(url, deleteUser, preProcessing);
     }
@@ -172,7 +173,7 @@ public class UserManagement extends ParentModule {
                 }
             }
         };
-        getUserInfo.setHeaders(basicHeaderList);
+        getUserInfo.setHeaders(getBasicHeaders());
         String url = objIotKit.prepareUrl(objIotKit.getUserInfo, createHashMapWithUserID(tempUserId));
         return super.invokeHttpExecuteOnURL(url, getUserInfo, preProcessing);
     }
@@ -204,7 +205,7 @@ public class UserManagement extends ParentModule {
         }
         //initiating put for user attributes updation
         HttpPutTask updateUserAttributes = new HttpPutTask();
-        updateUserAttributes.setHeaders(basicHeaderList);
+        updateUserAttributes.setHeaders(getBasicHeaders());
         updateUserAttributes.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.updateUserAttributes, createHashMapWithUserID(tempUserId));
         return super.invokeHttpExecuteOnURL(url, updateUserAttributes);
@@ -231,7 +232,7 @@ public class UserManagement extends ParentModule {
         }
         //initiating post for change password request
         HttpPostTask reqChangepassword = new HttpPostTask();
-        reqChangepassword.setHeaders(basicHeaderList);
+        reqChangepassword.setHeaders(getBasicHeaders());
         reqChangepassword.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.requestChangePassword, null);
         return super.invokeHttpExecuteOnURL(url, reqChangepassword);
@@ -259,7 +260,7 @@ public class UserManagement extends ParentModule {
         }
         //initiating put for update password request
         HttpPutTask updatePassword = new HttpPutTask();
-        updatePassword.setHeaders(basicHeaderList);
+        updatePassword.setHeaders(getBasicHeaders());
         updatePassword.setRequestBody(body);
         String url = objIotKit.prepareUrl(objIotKit.requestChangePassword, null);
         return super.invokeHttpExecuteOnURL(url, updatePassword);
@@ -288,7 +289,7 @@ public class UserManagement extends ParentModule {
         }
         //initiating put for change password request
         HttpPutTask changePassword = new HttpPutTask();
-        changePassword.setHeaders(basicHeaderList);
+        changePassword.setHeaders(getBasicHeaders());
         changePassword.setRequestBody(body);
         LinkedHashMap<String, String> linkedHashMap = new LinkedHashMap<String, String>();
         linkedHashMap.put("email", emailAddress);
@@ -338,11 +339,11 @@ public class UserManagement extends ParentModule {
         String tempUserId = userId;
         if (tempUserId == null) {
             Log.d(TAG, "passed userId is NULL,trying to fetch the one from shared prefs.....");
-            if (Utilities.sharedPreferences == null) {
+            if (!SessionState.getInstance().isLoaded()) {
                 Log.d(TAG, "problem in getting user_id From shared prefs, as shared prefs is null");
                 return null;
             }
-            tempUserId = Utilities.sharedPreferences.getString("user_id", "");
+            tempUserId = SessionState.getInstance().getUserId();
             if (tempUserId == null) {
                 Log.d(TAG, "problem in getting user_id From shared prefs, as user_id is nil");
                 return null;
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKit;
+import com.intel.iotkitlib.utils.IotKitLog;
+
+import org.apache.http.NameValuePair;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Request pipeline shared by the http tasks: the request is built from the url, headers and
+ * body of the task, passed to the {@link HttpInterceptor}s registered on {@link IotKit}, sent by
+ * the {@link HttpTransport} and its response is read into a {@link CloudResponse}. Failed
+ * attempts are sent again as the {@link RetryPolicy} of the task allows, within the
+ * {@link RequestTimeouts} of the task. A request that cannot be sent gets a response with code 0
+ * and the error message.
+ */
+public abstract class AbstractHttpTask implements HttpTask {
+    public static final String TRANSPORT_APACHE = "apache";
+    public static final String TRANSPORT_URL_CONNECTION = "urlconnection";
+
+    private static HttpTransport defaultTransport = null;
+
+    private final String tag;
+    private List<NameValuePair> headerList;
+    private JsonResponseDecoder responseDecoder;
+    private HttpTransport transport;
+    private RetryPolicy retryPolicy;
+    private RequestTimeouts timeouts;
+
+    protected AbstractHttpTask(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return the http method of the task, one of the CloudRequest METHOD_ constants.
+     */
+    protected abstract String getMethod();
+
+    /**
+     * @return the request body, or null if the request has none.
+     */
+    protected String getRequestBody() {
+        return null;
+    }
+
+    public CloudResponse doAsync(final String url, final HttpTaskHandler taskHandler) {
+        return HttpTaskExecutor.submit(this, url, taskHandler);
+    }
+
+    public CloudResponse doSync(String url) {
+        return execute(url, null);
+    }
+
+    /**
+     * Send the request and read the response.
+     *
+     * @param url          the url to send the request to.
+     * @param extraHeaders headers sent in addition to the task headers; can be null.
+     * @return the cloud response.
+     */
+    protected CloudResponse execute(String url, List<NameValuePair> extraHeaders) {
+        HttpInterceptor[] interceptors = IotKit.getInstance().getInterceptors();
+        RequestTimeouts limits = getTimeouts();
+        CloudRequest request = new CloudRequest(getMethod(), url, headerList);
+        request.setTimeouts(limits.getConnectTimeout(), limits.getReadTimeout());
+        if (extraHeaders != null) {
+            request.getHeaders().addAll(extraHeaders);
+        }
+        RequestHandle handle = RequestHandle.current();
+        if (handle != null) {
+            handle.attach(request);
+        }
+        Deadline deadline = limits.getDeadline() > 0 ? new Deadline(request, limits.getDeadline()) : null;
+        CloudResponse cloudResponse;
+        //interceptors whose onRequest returned, only those are told about a failure
+        int entered = 0;
+        try {
+            String httpBody = getRequestBody();
+            if (httpBody != null) {
+                HttpRequestBody.encode(request, httpBody);
+            }
+            while (entered < interceptors.length) {
+                interceptors[entered].onRequest(request);
+                entered++;
+            }
+            if (IotKitLog.DEBUG) {
+                HttpRequestBody.log(tag, request, httpBody);
+            }
+            cloudResponse = send(request, deadline, handle);
+        } catch (Exception e) {
+            String message = e.getMessage();
+            if (deadline != null && deadline.expired) {
+                message = RequestTimeouts.ERR_DEADLINE_EXCEEDED;
+                IotKitLog.w(tag, "%s: %s", message, url);
+            } else if (request.isCancelled()) {
+                message = RequestHandle.ERR_CANCELLED;
+                if (IotKitLog.DEBUG) {
+                    IotKitLog.d(tag, "%s: %s", message, url);
+                }
+            } else if (e instanceof java.net.ConnectException) {
+                IotKitLog.e(tag, "cannot connect: %s", message);
+            } else {
+                IotKitLog.e(tag, "request failed", e);
+            }
+            for (int i = entered - 1; i >= 0; i--) {
+                interceptors[i].onError(request, e);
+            }
+            if (handle != null) {
+                //failed before it was sent, e.g. in an interceptor
+                handle.releaseReservedPermit();
+            }
+            CloudResponse failure = new CloudResponse(false, message);
+            failure.networkFailure = isNetworkFailure(e) && !request.isCancelled()
+                    && (deadline == null || !deadline.expired);
+            return failure;
+        } finally {
+            if (deadline != null) {
+                deadline.timer.cancel(false);
+            }
+        }
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            try {
+                cloudResponse = interceptors[i].onResponse(request, cloudResponse);
+            } catch (RuntimeException re) {
+                IotKitLog.e(tag, "interceptor failed", re);
+                //the interceptors that have not seen the response get the error instead
+                for (int j = i - 1; j >= 0; j--) {
+                    interceptors[j].onError(request, re);
+                }
+                return new CloudResponse(false, re.getMessage());
+            }
+        }
+        if (!CloudRequest.METHOD_GET.equals(request.getMethod())
+                && cloudResponse.code >= 200 && cloudResponse.code < 300) {
+            //cached lists that contain the changed resource are out of date
+            HttpResponseCache.invalidate(url);
+        }
+        return cloudResponse;
+    }
+
+    //connect and i/o errors, except an interrupted request; a socket timeout is a network failure
+    private static boolean isNetworkFailure(Exception e) {
+        return e instanceof IOException
+                && (!(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException);
+    }
+
+    //sends the request until it succeeds, the retry policy gives up or the request is aborted
+    private CloudResponse send(CloudRequest request, Deadline deadline, RequestHandle handle) throws Exception {
+        RetryPolicy policy = getRetryPolicy();
+        RateLimiter rateLimiter = IotKit.getInstance().getRateLimiter(request.getUrl());
+        if (request.isCancelled()) {
+            //cancelled before it was sent, no rate limiter token is taken for it
+            throw new InterruptedIOException("request aborted");
+        }
+        //the token reserved when the request was queued, if any, is used from here on
+        boolean permitReserved = handle != null && handle.takeReservedPermit();
+        for (int attempt = 1; ; attempt++) {
+            CloudResponse cloudResponse = null;
+            long backoff;
+            if (rateLimiter != null && !(attempt == 1 && permitReserved)) {
+                rateLimiter.acquire();
+                if (request.isCancelled()) {
+                    throw new InterruptedIOException("request aborted");
+                }
+            }
+            try {
+                TransportResponse response = getTransport().execute(request);
+                try {
+                    cloudResponse = HttpResponseReader.read(response, responseDecoder, tag);
+                } finally {
+                    request.setAbortAction(null);
+                    response.close();
+                }
+                if (!policy.isRetryable(cloudResponse.code)) {
+                    return cloudResponse;
+                }
+                backoff = policy.getBackoff(attempt, cloudResponse);
+                if (backoff < 0 || (deadline != null && !deadline.allows(backoff))) {
+                    return cloudResponse;
+                }
+                IotKitLog.w(tag, "attempt %d got %d, retry in %d ms", attempt, cloudResponse.code, backoff);
+            } catch (IOException ie) {
+                backoff = policy.getBackoff(attempt, null);
+                if (request.isCancelled() || backoff < 0 || (deadline != null && !deadline.allows(backoff))) {
+                    throw ie;
+                }
+                IotKitLog.w(tag, "attempt %d failed: %s, retry in %d ms", attempt, ie.getMessage(), backoff);
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                if (cloudResponse != null) {
+                    return cloudResponse;
+                }
+                throw ie;
+            }
+            if (request.isCancelled()) {
+                throw new InterruptedIOException("request aborted");
+            }
+        }
+    }
+
+    /**
+     * Take the rate limiter token of the first attempt ahead of time, so that a queued async
+     * request waits on the timer instead of on an executor thread.
+     *
+     * @param handle the handle of the queued request; only its first attempt uses the token.
+     * @return the time in milliseconds before the request can be sent.
+     */
+    long reservePermit(String url, RequestHandle handle) {
+        RateLimiter rateLimiter = IotKit.getInstance().getRateLimiter(url);
+        if (rateLimiter == null) {
+            return 0;
+        }
+        handle.setReservedPermit(rateLimiter);
+        return rateLimiter.reserve();
+    }
+
+    public void setHeaders(List<NameValuePair> headers) {
+        this.headerList = headers;
+    }
+
+    public List<NameValuePair> getHeaders() {
+        return headerList;
+    }
+
+    /**
+     * Decode a successful response from the stream instead of reading it as String.
+     *
+     * @param responseDecoder the decoder for the response body; null reads the body as String.
+     */
+    public void setResponseDecoder(JsonResponseDecoder responseDecoder) {
+        this.responseDecoder = responseDecoder;
+    }
+
+    public JsonResponseDecoder getResponseDecoder() {
+        return responseDecoder;
+    }
+
+    /**
+     * Send this task with another transport than the default one.
+     *
+     * @param transport the transport for this task; null uses the default transport.
+     */
+    public void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    public HttpTransport getTransport() {
+        return transport != null ? transport : getDefaultTransport();
+    }
+
+    /**
+     * Retry this task with another policy than the default one; POST requests are only retried
+     * with a policy set here.
+     *
+     * @param retryPolicy the policy for this task; null uses the default one.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        if (retryPolicy != null) {
+            return retryPolicy;
+        }
+        //sending a POST twice may create the resource twice
+        return CloudRequest.METHOD_POST.equals(getMethod()) ? RetryPolicy.NONE : RetryPolicy.getDefault();
+    }
+
+    /**
+     * Limit the time this task may take, instead of the defaults of the "timeouts" settings.
+     *
+     * @param timeouts the time limits for this task; null uses the defaults.
+     */
+    public void setTimeouts(RequestTimeouts timeouts) {
+        this.timeouts = timeouts;
+    }
+
+    public RequestTimeouts getTimeouts() {
+        return timeouts != null ? timeouts : IotKit.getInstance().getTimeouts(null);
+    }
+
+    /**
+     * @return true if limits were set on this task with {@link #setTimeouts}.
+     */
+    public boolean hasTimeouts() {
+        return timeouts != null;
+    }
+
+    /**
+     * Get the transport used by all the tasks that do not set their own. It is created on first
+     * use from the "http_client" "transport" setting in {@link IotKit}.
+     *
+     * @return the default transport.
+     */
+    public static synchronized HttpTransport getDefaultTransport() {
+        if (defaultTransport == null) {
+            if (TRANSPORT_URL_CONNECTION.equals(IotKit.getInstance().httpTransport)) {
+                defaultTransport = new UrlConnectionTransport();
+            } else {
+                defaultTransport = new ApacheHttpTransport();
+            }
+        }
+        return defaultTransport;
+    }
+
+    /**
+     * Replace the transport used by all the tasks that do not set their own.
+     *
+     * @param transport the new default transport; null goes back to the configured one.
+     */
+    public static synchronized void setDefaultTransport(HttpTransport transport) {
+        defaultTransport = transport;
+    }
+
+    //aborts the request when the overall time limit expires
+    private static class Deadline implements Runnable {
+        private final CloudRequest request;
+        private final long expiresAt;
+        private final ScheduledFuture<?> timer;
+        volatile boolean expired;
+
+        Deadline(CloudRequest request, long deadline) {
+            this.request = request;
+            this.expiresAt = System.currentTimeMillis() + deadline;
+            this.timer = HttpTaskExecutor.schedule(this, deadline);
+        }
+
+        @Override
+        public void run() {
+            expired = true;
+            request.cancel();
+        }
+
+        //whether an attempt after the backoff can still start before the deadline
+        boolean allows(long backoff) {
+            return System.currentTimeMillis() + backoff < expiresAt;
+        }
+    }
+}
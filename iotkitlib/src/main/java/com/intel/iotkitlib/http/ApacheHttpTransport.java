@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transport on the shared Apache http client of {@link HttpClientPool}.
+ */
+public class ApacheHttpTransport implements HttpTransport {
+
+    @Override
+    public TransportResponse execute(CloudRequest request) throws IOException {
+        final HttpRequestBase httpRequest = createRequest(request);
+        for (NameValuePair header : request.getHeaders()) {
+            httpRequest.addHeader(header.getName(), header.getValue());
+        }
+        if (request.getBody() != null && httpRequest instanceof HttpEntityEnclosingRequestBase) {
+            ByteArrayEntity entity = new ByteArrayEntity(request.getBody());
+            if (request.getContentEncoding() != null) {
+                entity.setContentEncoding(request.getContentEncoding());
+            }
+            ((HttpEntityEnclosingRequestBase) httpRequest).setEntity(entity);
+        }
+        //request params take precedence over the params of the shared client
+        HttpParams params = httpRequest.getParams();
+        HttpConnectionParams.setConnectionTimeout(params, (int) request.getConnectTimeout());
+        HttpConnectionParams.setSoTimeout(params, (int) request.getReadTimeout());
+        ConnManagerParams.setTimeout(params, request.getConnectTimeout());
+        request.setAbortAction(new Runnable() {
+            @Override
+            public void run() {
+                httpRequest.abort();
+            }
+        });
+        HttpResponse response;
+        try {
+            response = HttpClientPool.getHttpClient().execute(httpRequest, new BasicHttpContext());
+        } catch (IOException ie) {
+            //aborting releases the pooled connection that may be left in an unknown state
+            httpRequest.abort();
+            throw ie;
+        } catch (RuntimeException re) {
+            httpRequest.abort();
+            throw re;
+        }
+        Header[] responseHeaders = response.getAllHeaders();
+        List<NameValuePair> headers = new ArrayList<NameValuePair>(responseHeaders.length);
+        for (Header header : responseHeaders) {
+            headers.add(new BasicNameValuePair(header.getName(), header.getValue()));
+        }
+        final HttpEntity entity = response.getEntity();
+        return new TransportResponse(response.getStatusLine().getStatusCode(), headers,
+                entity != null ? entity.getContent() : null,
+                entity != null ? entity.getContentLength() : -1,
+                new Closeable() {
+                    @Override
+                    public void close() throws IOException {
+                        if (entity == null) {
+                            return;
+                        }
+                        try {
+                            //release the connection back to the pool
+                            entity.consumeContent();
+                        } catch (IOException ie) {
+                            httpRequest.abort();
+                            throw ie;
+                        }
+                    }
+                });
+    }
+
+    private static HttpRequestBase createRequest(final CloudRequest request) {
+        String method = request.getMethod();
+        if (CloudRequest.METHOD_GET.equals(method)) {
+            return new HttpGet(request.getUrl());
+        } else if (CloudRequest.METHOD_POST.equals(method)) {
+            return new HttpPost(request.getUrl());
+        } else if (CloudRequest.METHOD_PUT.equals(method)) {
+            return new HttpPut(request.getUrl());
+        } else if (CloudRequest.METHOD_DELETE.equals(method)) {
+            return new HttpDelete(request.getUrl());
+        }
+        throw new IllegalArgumentException("unsupported method " + method);
+    }
+}
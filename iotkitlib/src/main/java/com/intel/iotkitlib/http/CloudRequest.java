@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Http request as handed to an {@link HttpTransport}: method, url, headers and the encoded body.
+ */
+public class CloudRequest {
+    public static final String METHOD_GET = "GET";
+    public static final String METHOD_POST = "POST";
+    public static final String METHOD_PUT = "PUT";
+    public static final String METHOD_DELETE = "DELETE";
+
+    private final String method;
+    private final String url;
+    private final List<NameValuePair> headers;
+    private byte[] body;
+    private String contentEncoding;
+    private Map<String, Object> attributes;
+    private long connectTimeout;
+    private long readTimeout;
+    private volatile boolean cancelled;
+    private Runnable abortAction;
+
+    public CloudRequest(String method, String url, List<NameValuePair> headers) {
+        this.method = method;
+        this.url = url;
+        this.headers = headers != null ? new ArrayList<NameValuePair>(headers) : new ArrayList<NameValuePair>();
+    }
+
+    public String getMethod() { return method; }
+
+    public String getUrl() { return url; }
+
+    public List<NameValuePair> getHeaders() { return headers; }
+
+    /**
+     * @return the first value of the header, or null if the request does not have it.
+     */
+    public String getHeader(String name) {
+        for (NameValuePair header : headers) {
+            if (header.getName().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    public void addHeader(String name, String value) {
+        headers.add(new BasicNameValuePair(name, value));
+    }
+
+    /**
+     * Replace all values of a header.
+     */
+    public void setHeader(String name, String value) {
+        for (Iterator<NameValuePair> iterator = headers.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getName().equalsIgnoreCase(name)) {
+                iterator.remove();
+            }
+        }
+        addHeader(name, value);
+    }
+
+    /**
+     * @return the body bytes as sent, or null if the request has no body.
+     */
+    public byte[] getBody() { return body; }
+
+    /**
+     * @return encoding of the body, such as "gzip", or null if it is not encoded.
+     */
+    public String getContentEncoding() { return contentEncoding; }
+
+    public void setBody(byte[] body, String contentEncoding) {
+        this.body = body;
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @return a value stored by an interceptor, or null if there is none.
+     */
+    public Object getAttribute(String name) {
+        return attributes != null ? attributes.get(name) : null;
+    }
+
+    /**
+     * Store a value for the lifetime of this request, for example the time it was sent.
+     */
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<String, Object>();
+        }
+        attributes.put(name, value);
+    }
+
+    /**
+     * @return time in milliseconds to open the connection; 0 means no limit.
+     */
+    public long getConnectTimeout() { return connectTimeout; }
+
+    /**
+     * @return time in milliseconds between two packets of the response; 0 means no limit.
+     */
+    public long getReadTimeout() { return readTimeout; }
+
+    public void setTimeouts(long connectTimeout, long readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Set how the transport aborts the request in progress. It is run at most once, from the
+     * thread that calls {@link #cancel()}, or at once if the request is already cancelled.
+     *
+     * @param abortAction aborts the connection of the request; null when nothing is in progress.
+     */
+    public void setAbortAction(Runnable abortAction) {
+        synchronized (this) {
+            if (!cancelled) {
+                this.abortAction = abortAction;
+                return;
+            }
+        }
+        if (abortAction != null) {
+            abortAction.run();
+        }
+    }
+
+    /**
+     * Abort the request. The thread that sends it gets an IOException, and the request is not
+     * retried.
+     */
+    public void cancel() {
+        Runnable action;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            action = abortAction;
+            abortAction = null;
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    public boolean isCancelled() { return cancelled; }
+}
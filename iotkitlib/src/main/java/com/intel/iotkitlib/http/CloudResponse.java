@@ -22,6 +22,10 @@
  */
 package com.intel.iotkitlib.http;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Cloud response data structure
  */
@@ -29,6 +33,11 @@ public class CloudResponse {
     boolean status;
     int code;
     String response;
+    Object decodedResponse;
+    //response headers, keyed by lower case name
+    Map<String, String> headers = Collections.emptyMap();
+    RequestHandle requestHandle;
+    boolean networkFailure;
 
     public CloudResponse() {
         status = false;
@@ -46,6 +55,12 @@ public class CloudResponse {
         this.response = response;
     }
 
+    public CloudResponse(int code, String response, Object decodedResponse) {
+        this.code = code;
+        this.response = response;
+        this.decodedResponse = decodedResponse;
+    }
+
     public int getCode() { return code; }
 
     public String getResponse() {
@@ -54,4 +69,36 @@ public class CloudResponse {
     }
 
     public boolean getStatus() { return status; }
+
+    /**
+     * @return the response decoded by the {@link JsonResponseDecoder} given with the request, or
+     * null if no decoder was given or the request did not succeed.
+     */
+    public Object getDecodedResponse() { return decodedResponse; }
+
+    /**
+     * @return true if the request failed because the cloud could not be reached: the connection
+     * failed or broke, or the server did not answer in time. False for requests that got a
+     * response, and for requests that were cancelled, rejected or ran out of their deadline.
+     */
+    public boolean isNetworkFailure() { return networkFailure; }
+
+    /**
+     * @return for an async request that was started or queued, the handle to cancel or await
+     * it; otherwise null.
+     */
+    public RequestHandle getRequestHandle() { return requestHandle; }
+
+    /**
+     * @param name header name, not case sensitive.
+     * @return the value of the response header, or null if the response does not have it.
+     */
+    public String getHeader(String name) { return headers.get(name.toLowerCase()); }
+
+    void setHeader(String name, String value) {
+        if (headers.isEmpty()) {
+            headers = new HashMap<String, String>();
+        }
+        headers.put(name.toLowerCase(), value);
+    }
 }
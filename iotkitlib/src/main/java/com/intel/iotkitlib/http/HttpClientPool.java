@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKit;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Library wide http client backed by a thread safe connection manager, so that all the
+ * http tasks reuse warm (keep-alive) connections to the cloud instead of doing a new
+ * TCP + TLS handshake for every request.
+ * <p/>
+ * The pool is created on first use from the "http_client" settings in {@link IotKit};
+ * changes to those settings take effect after {@link #shutdown()}.
+ */
+public class HttpClientPool {
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static DefaultHttpClient httpClient = null;
+
+    private HttpClientPool() {
+    }
+
+    /**
+     * Get the shared http client. Expired and idle connections are evicted from the pool
+     * before the client is handed out.
+     *
+     * @return the shared http client.
+     */
+    public static synchronized DefaultHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = createHttpClient(IotKit.getInstance());
+        }
+        evictConnections(httpClient.getConnectionManager(), IotKit.getInstance().connectionIdleTimeout);
+        return httpClient;
+    }
+
+    /**
+     * Close all pooled connections and release the shared http client. A new client is
+     * created with the current {@link IotKit} settings on next use.
+     */
+    public static synchronized void shutdown() {
+        if (httpClient != null) {
+            httpClient.getConnectionManager().shutdown();
+            httpClient = null;
+        }
+    }
+
+    private static DefaultHttpClient createHttpClient(final IotKit objIotKit) {
+        HttpParams params = new BasicHttpParams();
+        HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+        HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
+        //pooled connections may have been closed by the server, check before reuse
+        HttpConnectionParams.setStaleCheckingEnabled(params, true);
+        //the tasks set their own limits on each request, these cover any other use of the client
+        RequestTimeouts timeouts = objIotKit.getTimeouts(null);
+        HttpConnectionParams.setConnectionTimeout(params, (int) timeouts.getConnectTimeout());
+        HttpConnectionParams.setSoTimeout(params, (int) timeouts.getReadTimeout());
+        ConnManagerParams.setTimeout(params, timeouts.getConnectTimeout());
+        ConnManagerParams.setMaxTotalConnections(params, objIotKit.maxTotalConnections);
+        ConnManagerParams.setMaxConnectionsPerRoute(params,
+                new ConnPerRouteBean(objIotKit.maxConnectionsPerRoute));
+
+        SchemeRegistry schemeRegistry = new SchemeRegistry();
+        schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+        schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+        ClientConnectionManager connectionManager = new ThreadSafeClientConnManager(params, schemeRegistry);
+        DefaultHttpClient client = new DefaultHttpClient(connectionManager, params);
+        client.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                //honour the keep-alive timeout sent by the server, otherwise use the configured one
+                HeaderElementIterator iterator = new BasicHeaderElementIterator(
+                        response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+                while (iterator.hasNext()) {
+                    HeaderElement element = iterator.nextElement();
+                    if (element.getValue() != null && element.getName().equalsIgnoreCase("timeout")) {
+                        try {
+                            return Long.parseLong(element.getValue()) * 1000;
+                        } catch (NumberFormatException nfe) {
+                            break;
+                        }
+                    }
+                }
+                return objIotKit.keepAliveDuration;
+            }
+        });
+        if (objIotKit.acceptGzipResponses) {
+            client.addRequestInterceptor(new HttpRequestInterceptor() {
+                @Override
+                public void process(HttpRequest request, HttpContext context) {
+                    if (!request.containsHeader(ACCEPT_ENCODING)) {
+                        request.addHeader(ACCEPT_ENCODING, HttpRequestBody.ENCODING_GZIP);
+                    }
+                }
+            });
+        }
+        return client;
+    }
+
+    private static void evictConnections(ClientConnectionManager connectionManager, long idleTimeout) {
+        connectionManager.closeExpiredConnections();
+        if (idleTimeout > 0) {
+            connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+}
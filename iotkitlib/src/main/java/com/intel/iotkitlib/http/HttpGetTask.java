@@ -22,100 +22,53 @@
  */
 package com.intel.iotkitlib.http;
 
-import android.os.AsyncTask;
-import android.util.Log;
+import com.intel.iotkitlib.utils.IotKit;
+import com.intel.iotkitlib.utils.IotKitLog;
 
-import org.apache.http.Header;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.protocol.BasicHttpContext;
-import org.apache.http.protocol.HTTP;
-import org.apache.http.protocol.HttpContext;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.util.List;
-
-
-public class HttpGetTask implements HttpTask {
+public class HttpGetTask extends AbstractHttpTask {
     private static final String TAG = "HttpGetTask";
-    private static final boolean debug = true;
-
-    //protected Context mContext;
-    private List<NameValuePair> headerList;
 
-    private AsyncTask<String, Void, CloudResponse> asyncTask;
+    public HttpGetTask() {
+        super(TAG);
+    }
 
-    public CloudResponse doAsync(final String url, final HttpTaskHandler taskHandler) {
-        asyncTask = new AsyncTask<String, Void, CloudResponse>() {
-            @Override
-            protected CloudResponse doInBackground(String... urls) {
-                return doSync(urls[0]);
-            }
-            protected void onPostExecute(CloudResponse response) {
-                // Done on UI Thread
-                if (response != null && taskHandler != null) {
-                    taskHandler.taskResponse(response.code, response.response);
-                }
-            }
-        };
-        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, url);
-        return new CloudResponse(true, "Successful execute " + url);
+    @Override
+    protected String getMethod() {
+        return CloudRequest.METHOD_GET;
     }
 
+    @Override
     public CloudResponse doSync(String url) {
-        HttpClient httpClient = new DefaultHttpClient();
-        try {
-            HttpContext localContext = new BasicHttpContext();
-            HttpGet httpGet = new HttpGet(url);
-            //adding headers one by one
-            for (NameValuePair nvp : headerList) {
-                httpGet.addHeader(nvp.getName(), nvp.getValue());
-            }
-            if (debug) {
-                Log.e(TAG, "URI is : " + httpGet.getURI());
-                Header[] headers = httpGet.getAllHeaders();
-                for (int i = 0; i < headers.length; i++) {
-                    Log.e(TAG, "Header " + i + " is :" + headers[i].getName() + ":" + headers[i].getValue());
-                }
-            }
-            HttpResponse response = httpClient.execute(httpGet, localContext);
-            if (response != null && response.getStatusLine() != null) {
-                if (debug) Log.d(TAG, "response: " + response.getStatusLine().getStatusCode());
-            }
-
-
-            HttpEntity responseEntity = response != null ? response.getEntity() : null;
-            StringBuilder builder = new StringBuilder();
-            if (responseEntity != null) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(responseEntity.getContent(), HTTP.UTF_8));
-                for (String line = null; (line = reader.readLine()) != null; ) {
-                    builder.append(line).append("\n");
-                }
-                if (debug) Log.d(TAG, "Response received is :" + builder.toString());
+        //responses of api paths with a ttl are cached, unless they are decoded from the stream
+        long cacheTtl = getResponseDecoder() == null ? IotKit.getInstance().getResponseCacheTtl(url) : -1;
+        if (cacheTtl < 0) {
+            return execute(url, null);
+        }
+        String cacheKey = requestKey(url);
+        HttpResponseCache.Entry cached = HttpResponseCache.get(cacheKey);
+        if (cached != null && cached.isFresh()) {
+            if (IotKitLog.DEBUG) {
+                IotKitLog.d(TAG, "response from cache: %s", url);
             }
-
-            CloudResponse cloudResponse = new CloudResponse();
-            if (response != null) {
-                cloudResponse.code = response.getStatusLine().getStatusCode();
+            return cached.toCloudResponse();
+        }
+        boolean revalidate = cached != null && cached.canRevalidate();
+        CloudResponse cloudResponse = execute(url, revalidate ? cached.conditionalHeaders() : null);
+        if (revalidate && cloudResponse.code == 304) {
+            if (IotKitLog.DEBUG) {
+                IotKitLog.d(TAG, "cached response not modified: %s", url);
             }
-            cloudResponse.response = builder.toString();
-            return cloudResponse;
-        } catch (java.net.ConnectException cEx) {
-            Log.e(TAG, cEx.getMessage());
-            return new CloudResponse(false, cEx.getMessage());
-        } catch (Exception e) {
-            Log.e(TAG, e.toString());
-            e.printStackTrace();
-            return new CloudResponse(false, e.getMessage());
+            HttpResponseCache.put(cacheKey, cached.renew(cacheTtl));
+            return cached.toCloudResponse();
+        }
+        if (cloudResponse.code == 200) {
+            HttpResponseCache.put(cacheKey, HttpResponseCache.Entry.from(cloudResponse, cacheTtl));
         }
+        return cloudResponse;
     }
 
-    public void setHeaders(List<NameValuePair> headers) {
-        this.headerList = headers;
+    //identifies the request by url and authorization
+    String requestKey(String url) {
+        return HttpResponseCache.requestKey(url, getHeaders());
     }
 }
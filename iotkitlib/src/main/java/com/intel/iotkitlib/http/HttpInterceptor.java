@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKit;
+
+/**
+ * Hook around every request sent by the http tasks, registered with
+ * {@link IotKit#addInterceptor(HttpInterceptor)}.
+ * <p/>
+ * {@link #onRequest} is called in registration order before the request is sent; then either
+ * {@link #onResponse} or {@link #onError} is called in reverse registration order, only on the
+ * interceptors whose {@link #onRequest} returned. All three
+ * run on the thread that sends the request, so state for one request can be kept in
+ * {@link CloudRequest#setAttribute(String, Object)}. Responses served from the response
+ * cache do not go through the interceptors.
+ */
+public interface HttpInterceptor {
+    /**
+     * Called before the request is sent; headers can be added or replaced. A runtime exception
+     * thrown here fails the request.
+     *
+     * @param request the request about to be sent.
+     */
+    void onRequest(CloudRequest request);
+
+    /**
+     * Called when a response was received; it must not throw. If it does, the request fails
+     * and the interceptors registered before this one get {@link #onError} instead.
+     *
+     * @param request  the request as sent.
+     * @param response the response from the cloud, or from the previous interceptor.
+     * @return the response to hand on; usually the given one.
+     */
+    CloudResponse onResponse(CloudRequest request, CloudResponse response);
+
+    /**
+     * Called when the request could not be sent or its response could not be read; it must
+     * not throw.
+     *
+     * @param request the request.
+     * @param error   the cause of the failure.
+     */
+    void onError(CloudRequest request, Exception error);
+}
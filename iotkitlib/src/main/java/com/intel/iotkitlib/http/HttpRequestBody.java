@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKit;
+import com.intel.iotkitlib.utils.IotKitLog;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.protocol.HTTP;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+//request body encoding shared by the http tasks
+final class HttpRequestBody {
+    static final String CONTENT_ENCODING = "Content-Encoding";
+    static final String ENCODING_GZIP = "gzip";
+
+    private HttpRequestBody() {
+    }
+
+    /**
+     * Set the request body, gzip compressed if the "compression" settings of {@link IotKit}
+     * ask for it for the request url and body size.
+     */
+    static void encode(CloudRequest request, String httpBody) throws IOException {
+        byte[] body = httpBody.getBytes(HTTP.UTF_8);
+        if (!IotKit.getInstance().shouldGzipRequest(request.getUrl(), body.length)) {
+            request.setBody(body, null);
+            return;
+        }
+        //json usually compresses to well under a quarter of its size
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        gzip.write(body);
+        gzip.close();
+        request.setBody(compressed.toByteArray(), ENCODING_GZIP);
+    }
+
+    //logs the request line, the headers without credentials and the body as given
+    static void log(String tag, CloudRequest request, String httpBody) {
+        IotKitLog.d(tag, "%s %s", request.getMethod(), request.getUrl());
+        for (NameValuePair header : request.getHeaders()) {
+            IotKitLog.d(tag, "Header %s: %s", header.getName(),
+                    IotKitLog.headerValue(header.getName(), header.getValue()));
+        }
+        if (httpBody != null) {
+            IotKitLog.d(tag, "Body: %s", IotKitLog.body(httpBody));
+        }
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import android.content.Context;
+import android.util.LruCache;
+
+import com.intel.iotkitlib.utils.IotKit;
+import com.intel.iotkitlib.utils.IotKitLog;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache for GET responses of the api paths that have a ttl in the "response_cache" settings
+ * of {@link IotKit}. Responses are kept in a memory LRU bounded by "memory_max_bytes" and,
+ * once {@link #enableDiskCache(Context)} is called, in files bounded by "disk_max_bytes".
+ * <p/>
+ * A response is served from the cache until its ttl expires; after that it is revalidated
+ * with If-None-Match / If-Modified-Since and a 304 response renews it. A successful POST, PUT
+ * or DELETE drops the cached responses under the parent path of its url.
+ * <p/>
+ * Cache files are written on a background thread, so that a cacheable GET does not wait for
+ * the disk; a response that is replaced before its file is written is only written once. The
+ * memory tier takes no lock of this class, and the disk tier only locks to update its index,
+ * never while a file is read or written.
+ */
+public class HttpResponseCache {
+    private static final String TAG = "HttpResponseCache";
+    private static final String FILE_SUFFIX = ".cache";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int FILE_VERSION = 1;
+
+    private static final Object memoryLock = new Object();
+    private static volatile LruCache<String, Entry> memoryCache = null;
+
+    //guards the disk index and size; files are read and written outside of it
+    private static final Object diskLock = new Object();
+    private static volatile File diskDirectory = null;
+    private static long diskMaxBytes;
+    private static long diskBytes;
+    //request key to file of the disk tier; every write goes to a new file, so a file that is
+    //in the index does not change until it is deleted
+    private static final ConcurrentMap<String, File> diskIndex = new ConcurrentHashMap<String, File>();
+    //request key to response that is waiting for the writer thread
+    private static final ConcurrentMap<String, Entry> pendingWrites = new ConcurrentHashMap<String, Entry>();
+
+    //one writer thread for the disk tier, it goes away when idle
+    private static final ThreadPoolExecutor diskWriter = new ThreadPoolExecutor(1, 1,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "IotKit response cache");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static {
+        diskWriter.allowCoreThreadTimeOut(true);
+    }
+
+    private HttpResponseCache() {
+    }
+
+    /**
+     * Keep cached responses in the application cache directory as well, so that they survive
+     * a restart of the application.
+     */
+    public static void enableDiskCache(Context context) {
+        enableDiskCache(new File(context.getCacheDir(), "iotkit-http"), IotKit.getInstance().responseCacheDiskBytes);
+    }
+
+    /**
+     * Keep cached responses in the given directory as well.
+     *
+     * @param directory the directory for cache files; created if needed.
+     * @param maxBytes  maximum total size of the cache files.
+     */
+    public static void enableDiskCache(File directory, long maxBytes) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            IotKitLog.w(TAG, "cannot create cache directory %s", directory);
+            return;
+        }
+        synchronized (diskLock) {
+            diskDirectory = directory;
+            diskMaxBytes = maxBytes;
+            diskBytes = 0;
+            diskIndex.clear();
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String key = readKey(file);
+                    if (key == null || diskIndex.containsKey(key)) {
+                        file.delete();
+                    } else {
+                        diskIndex.put(key, file);
+                        diskBytes += file.length();
+                    }
+                }
+            }
+            deleteFiles(trimDisk());
+        }
+    }
+
+    /**
+     * Drop all cached responses, from memory and disk.
+     */
+    public static void clear() {
+        LruCache<String, Entry> cache = memoryCache;
+        if (cache != null) {
+            cache.evictAll();
+        }
+        List<File> files;
+        synchronized (diskLock) {
+            files = new ArrayList<File>(diskIndex.values());
+            diskIndex.clear();
+            pendingWrites.clear();
+            diskBytes = 0;
+        }
+        deleteFiles(files);
+    }
+
+    /**
+     * Drop the cached responses under the parent path of a url that was changed, which
+     * includes the collection the changed resource is listed in.
+     *
+     * @param url url of a successful POST, PUT or DELETE.
+     */
+    public static void invalidate(String url) {
+        LruCache<String, Entry> cache = getMemoryCache();
+        if (diskIndex.isEmpty() && pendingWrites.isEmpty() && (cache == null || cache.size() == 0)) {
+            return;
+        }
+        int query = url.indexOf('?');
+        String path = query >= 0 ? url.substring(0, query) : url;
+        String prefix = path.substring(0, Math.max(0, path.lastIndexOf('/')));
+        List<String> keys = new ArrayList<String>(diskIndex.keySet());
+        keys.addAll(pendingWrites.keySet());
+        if (cache != null) {
+            keys.addAll(cache.snapshot().keySet());
+        }
+        for (String key : keys) {
+            if (key.startsWith(prefix)) {
+                remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return the cache key of a request: url and a digest of the authorization, so that
+     * responses are not shared between users.
+     */
+    static String requestKey(String url, List<NameValuePair> headers) {
+        StringBuilder key = new StringBuilder(url);
+        if (headers != null) {
+            for (NameValuePair header : headers) {
+                if (IotKit.HEADER_AUTHORIZATION.equalsIgnoreCase(header.getName())) {
+                    key.append('\n').append(digest(header.getValue()));
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    static Entry get(String key) {
+        LruCache<String, Entry> cache = getMemoryCache();
+        Entry entry = cache != null ? cache.get(key) : null;
+        if (entry == null) {
+            entry = pendingWrites.get(key);
+        }
+        if (entry == null && diskIndex.containsKey(key)) {
+            entry = readDisk(key);
+            if (entry != null && cache != null) {
+                cache.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    static void put(final String key, Entry entry) {
+        LruCache<String, Entry> cache = getMemoryCache();
+        if (cache != null) {
+            cache.put(key, entry);
+        }
+        if (diskDirectory != null && pendingWrites.put(key, entry) == null) {
+            diskWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    writePending(key);
+                }
+            });
+        }
+    }
+
+    //writes the latest response of the key, unless it was removed since it was queued
+    private static void writePending(String key) {
+        Entry entry;
+        while ((entry = pendingWrites.get(key)) != null) {
+            File file = writeDisk(key, entry);
+            List<File> deleted = new ArrayList<File>(2);
+            synchronized (diskLock) {
+                //a response that was replaced meanwhile is written again, one that was
+                //removed is dropped
+                if (file == null || !pendingWrites.remove(key, entry)) {
+                    if (file != null) {
+                        deleted.add(file);
+                    }
+                    file = null;
+                } else {
+                    File previous = diskIndex.put(key, file);
+                    if (previous != null) {
+                        diskBytes -= previous.length();
+                        deleted.add(previous);
+                    }
+                    diskBytes += file.length();
+                    deleted.addAll(trimDisk());
+                }
+            }
+            deleteFiles(deleted);
+            if (file != null) {
+                return;
+            }
+        }
+    }
+
+    private static void remove(String key) {
+        LruCache<String, Entry> cache = memoryCache;
+        if (cache != null) {
+            cache.remove(key);
+        }
+        File file;
+        synchronized (diskLock) {
+            pendingWrites.remove(key);
+            file = diskIndex.remove(key);
+            if (file != null) {
+                diskBytes -= file.length();
+            }
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    private static LruCache<String, Entry> getMemoryCache() {
+        LruCache<String, Entry> cache = memoryCache;
+        if (cache != null) {
+            return cache;
+        }
+        int maxBytes = IotKit.getInstance().responseCacheMemoryBytes;
+        if (maxBytes <= 0) {
+            return null;
+        }
+        synchronized (memoryLock) {
+            if (memoryCache == null) {
+                memoryCache = new LruCache<String, Entry>(maxBytes) {
+                    @Override
+                    protected int sizeOf(String key, Entry entry) {
+                        return 2 * key.length() + entry.size();
+                    }
+                };
+            }
+            return memoryCache;
+        }
+    }
+
+    private static Entry readDisk(String key) {
+        File file = diskIndex.get(key);
+        if (file == null) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != FILE_VERSION || !key.equals(in.readUTF())) {
+                throw new IOException("stale cache file");
+            }
+            int code = in.readInt();
+            long expiresAt = in.readLong();
+            String etag = readOptional(in);
+            String lastModified = readOptional(in);
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            //most recently used files are evicted last
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(code, new String(body, "UTF-8"), etag, lastModified, expiresAt);
+        } catch (IOException ie) {
+            boolean indexed;
+            synchronized (diskLock) {
+                //the file may have been replaced or evicted while it was read
+                indexed = diskIndex.remove(key, file);
+                if (indexed) {
+                    diskBytes -= file.length();
+                }
+            }
+            if (indexed) {
+                IotKitLog.w(TAG, "cannot read cache file %s: %s", file, ie.getMessage());
+                file.delete();
+            }
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    //writes the response to a new file; returns null if it cannot be written
+    private static File writeDisk(String key, Entry entry) {
+        File directory = diskDirectory;
+        if (directory == null) {
+            return null;
+        }
+        File tempFile = null;
+        DataOutputStream out = null;
+        try {
+            tempFile = File.createTempFile(digest(key) + "-", TEMP_SUFFIX, directory);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(FILE_VERSION);
+            out.writeUTF(key);
+            out.writeInt(entry.code);
+            out.writeLong(entry.expiresAt);
+            out.writeUTF(entry.etag != null ? entry.etag : "");
+            out.writeUTF(entry.lastModified != null ? entry.lastModified : "");
+            byte[] body = entry.body.getBytes("UTF-8");
+            out.writeInt(body.length);
+            out.write(body);
+            out.close();
+            out = null;
+            String name = tempFile.getName();
+            File file = new File(directory, name.substring(0, name.length() - TEMP_SUFFIX.length()) + FILE_SUFFIX);
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("cannot rename " + tempFile);
+            }
+            return file;
+        } catch (IOException ie) {
+            IotKitLog.w(TAG, "cannot write cache file for %s: %s", key, ie.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            return null;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    //must be called holding the disk lock, takes the least recently used files out of the index
+    //and returns them, to be deleted once the lock is released
+    private static List<File> trimDisk() {
+        List<File> evicted = new ArrayList<File>();
+        if (diskBytes <= diskMaxBytes) {
+            return evicted;
+        }
+        List<Map.Entry<String, File>> files = new ArrayList<Map.Entry<String, File>>(diskIndex.entrySet());
+        Collections.sort(files, new Comparator<Map.Entry<String, File>>() {
+            @Override
+            public int compare(Map.Entry<String, File> lhs, Map.Entry<String, File> rhs) {
+                long left = lhs.getValue().lastModified();
+                long right = rhs.getValue().lastModified();
+                return left < right ? -1 : (left == right ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.size() && diskBytes > diskMaxBytes; i++) {
+            File file = files.get(i).getValue();
+            diskIndex.remove(files.get(i).getKey());
+            diskBytes -= file.length();
+            evicted.add(file);
+        }
+        return evicted;
+    }
+
+    private static void deleteFiles(List<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private static String readKey(File file) {
+        if (!file.getName().endsWith(FILE_SUFFIX)) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            return in.readInt() == FILE_VERSION ? in.readUTF() : null;
+        } catch (IOException ie) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private static String readOptional(DataInputStream in) throws IOException {
+        String value = in.readUTF();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ie) {
+                IotKitLog.w(TAG, ie.toString());
+            }
+        }
+    }
+
+    private static String digest(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        } catch (IOException ie) {
+            throw new IllegalStateException(ie);
+        }
+    }
+
+    //one cached response
+    static class Entry {
+        final int code;
+        final String body;
+        final String etag;
+        final String lastModified;
+        final long expiresAt;
+
+        Entry(int code, String body, String etag, String lastModified, long expiresAt) {
+            this.code = code;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        static Entry from(CloudResponse response, long ttl) {
+            return new Entry(response.code, response.getResponse(), response.getHeader("ETag"),
+                    response.getHeader("Last-Modified"), System.currentTimeMillis() + ttl);
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+
+        boolean canRevalidate() {
+            return etag != null || lastModified != null;
+        }
+
+        Entry renew(long ttl) {
+            return new Entry(code, body, etag, lastModified, System.currentTimeMillis() + ttl);
+        }
+
+        List<NameValuePair> conditionalHeaders() {
+            List<NameValuePair> headers = new ArrayList<NameValuePair>(2);
+            if (etag != null) {
+                headers.add(new BasicNameValuePair("If-None-Match", etag));
+            }
+            if (lastModified != null) {
+                headers.add(new BasicNameValuePair("If-Modified-Since", lastModified));
+            }
+            return headers;
+        }
+
+        CloudResponse toCloudResponse() {
+            CloudResponse response = new CloudResponse(code, body);
+            if (etag != null) {
+                response.setHeader("ETag", etag);
+            }
+            if (lastModified != null) {
+                response.setHeader("Last-Modified", lastModified);
+            }
+            return response;
+        }
+
+        int size() {
+            return 2 * body.length() + 64;
+        }
+    }
+}
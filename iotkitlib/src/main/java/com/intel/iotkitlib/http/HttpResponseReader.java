@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import android.util.JsonReader;
+
+import com.intel.iotkitlib.utils.IotKitLog;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.protocol.HTTP;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+//response handling shared by the http tasks
+final class HttpResponseReader {
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private HttpResponseReader() {
+    }
+
+    /**
+     * Read the response into a cloud response; the caller closes the transport response.
+     * A 2xx body is handed to the decoder when one is given, otherwise the body is read as String.
+     *
+     * @throws IOException             if the response cannot be read from the network.
+     * @throws ResponseDecodeException if the decoder cannot parse the body.
+     */
+    static CloudResponse read(TransportResponse response, JsonResponseDecoder decoder,
+                              String tag) throws IOException, ResponseDecodeException {
+        CloudResponse cloudResponse = new CloudResponse();
+        if (response == null) {
+            return cloudResponse;
+        }
+        cloudResponse.code = response.getCode();
+        if (IotKitLog.DEBUG) {
+            IotKitLog.d(tag, "response: %d", cloudResponse.code);
+        }
+        for (NameValuePair header : response.getHeaders()) {
+            cloudResponse.setHeader(header.getName(), header.getValue());
+        }
+        if (response.getContent() == null) {
+            return cloudResponse;
+        }
+        if (decoder != null && cloudResponse.code >= 200 && cloudResponse.code < 300) {
+            StreamErrors content = new StreamErrors(response.getContent());
+            JsonReader reader = new JsonReader(new InputStreamReader(content(response, content), HTTP.UTF_8));
+            try {
+                cloudResponse.decodedResponse = decoder.decode(reader);
+            } catch (IOException ie) {
+                if (content.failed) {
+                    throw ie;
+                }
+                throw new ResponseDecodeException(ie);
+            }
+        } else {
+            cloudResponse.response = readString(response);
+            if (IotKitLog.DEBUG) {
+                IotKitLog.d(tag, "Response received is: %s", IotKitLog.body(cloudResponse.response));
+            }
+        }
+        return cloudResponse;
+    }
+
+    /**
+     * Hand a completed request to the task handler.
+     */
+    static void deliver(HttpTaskHandler taskHandler, CloudResponse response) {
+        if (response == null || taskHandler == null) {
+            return;
+        }
+        if (taskHandler instanceof CloudResponseHandler) {
+            ((CloudResponseHandler) taskHandler).taskResponse(response);
+        } else {
+            taskHandler.taskResponse(response.code, response.response);
+        }
+    }
+
+    //response content, decompressed if the server sent it gzip encoded
+    private static InputStream content(TransportResponse response) throws IOException {
+        return content(response, response.getContent());
+    }
+
+    private static InputStream content(TransportResponse response, InputStream content) throws IOException {
+        String contentEncoding = response.getHeader(HttpRequestBody.CONTENT_ENCODING);
+        if (contentEncoding != null
+                && contentEncoding.toLowerCase().contains(HttpRequestBody.ENCODING_GZIP)) {
+            return new GZIPInputStream(content, READ_BUFFER_SIZE);
+        }
+        return content;
+    }
+
+    private static String readString(TransportResponse response) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(content(response), HTTP.UTF_8), READ_BUFFER_SIZE);
+        long length = response.getContentLength();
+        StringBuilder builder = new StringBuilder(length > 0 && length < Integer.MAX_VALUE ? (int) length : 256);
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        for (int read; (read = reader.read(buffer)) != -1; ) {
+            builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+    }
+
+    //notes whether reading the network stream failed, as opposed to parsing what was read
+    private static class StreamErrors extends FilterInputStream {
+        volatile boolean failed;
+
+        StreamErrors(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException ie) {
+                failed = true;
+                throw ie;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            try {
+                return super.read(buffer, offset, count);
+            } catch (IOException ie) {
+                failed = true;
+                throw ie;
+            }
+        }
+    }
+}
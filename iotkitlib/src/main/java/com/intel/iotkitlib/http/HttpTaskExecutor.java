@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.intel.iotkitlib.utils.IotKit;
+import com.intel.iotkitlib.utils.IotKitLog;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Library owned executor for async requests, so that cloud calls do not compete with the
+ * application's own AsyncTasks, plus the executor that handler callbacks are delivered on.
+ * <p/>
+ * The pool is created on first use from the "async_executor" settings in {@link IotKit}:
+ * the number of threads, the bound of the request queue and what to do with a request when
+ * the queue is full:
+ * <ul>
+ * <li>"abort" - the new request is not started and doAsync returns false.</li>
+ * <li>"discard_oldest" - the oldest queued request is dropped; its handler gets a failed
+ * response.</li>
+ * <li>"caller_runs" - the new request runs on the calling thread; on the main thread, and
+ * for requests dispatched by the library timer, the request is rejected as with "abort".</li>
+ * </ul>
+ * A request of a rate limited endpoint group whose bucket is empty waits on the library timer
+ * before it is queued, see {@link RateLimiter}; if the queue is full by then, its handler gets
+ * a failed response.
+ * <p/>
+ * Callbacks are delivered on the main thread unless another executor is set with
+ * {@link #setCallbackExecutor(Executor)}.
+ */
+public class HttpTaskExecutor {
+    private static final String TAG = "HttpTaskExecutor";
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    // Errors
+    public static final String ERR_REJECTED = "Request rejected, too many pending requests";
+
+    public static final String POLICY_ABORT = "abort";
+    public static final String POLICY_DISCARD_OLDEST = "discard_oldest";
+    public static final String POLICY_CALLER_RUNS = "caller_runs";
+
+    private static ThreadPoolExecutor executor = null;
+    private static ScheduledExecutorService timer = null;
+    private static volatile Executor callbackExecutor = null;
+
+    private HttpTaskExecutor() {
+    }
+
+    /**
+     * Run the task on the library executor and deliver its response to the handler on the
+     * callback executor.
+     *
+     * @return CloudResponse which wraps true if the request was started or queued; otherwise false.
+     */
+    public static CloudResponse submit(HttpTask httpTask, String url, HttpTaskHandler taskHandler) {
+        final ThreadPoolExecutor threadPoolExecutor = getExecutor();
+        final AsyncRequest asyncRequest = new AsyncRequest(httpTask, url, new RequestHandle(taskHandler));
+        long wait = httpTask instanceof AbstractHttpTask ? ((AbstractHttpTask) httpTask).reservePermit(url, asyncRequest.handle) : 0;
+        if (wait > 0) {
+            //rate limited, queued on the timer so that no executor thread waits for it
+            if (IotKitLog.DEBUG) {
+                IotKitLog.d(TAG, "rate limited, sending in %d ms: %s", wait, url);
+            }
+            final ScheduledFuture<?> delayed = schedule(new Runnable() {
+                @Override
+                public void run() {
+                    //never through the rejection policy, the timer thread must not run the request
+                    if (!offer(threadPoolExecutor, asyncRequest)) {
+                        asyncRequest.reject();
+                    }
+                }
+            }, wait);
+            asyncRequest.handle.setCancelAction(new Runnable() {
+                @Override
+                public void run() {
+                    delayed.cancel(false);
+                    threadPoolExecutor.remove(asyncRequest);
+                }
+            });
+        } else {
+            try {
+                threadPoolExecutor.execute(asyncRequest);
+            } catch (RejectedExecutionException ree) {
+                IotKitLog.w(TAG, "%s: %s", ERR_REJECTED, url);
+                asyncRequest.handle.releaseReservedPermit();
+                return new CloudResponse(false, ERR_REJECTED);
+            }
+            asyncRequest.handle.setCancelAction(new Runnable() {
+                @Override
+                public void run() {
+                    //a queued request is not sent at all
+                    threadPoolExecutor.remove(asyncRequest);
+                }
+            });
+        }
+        CloudResponse response = new CloudResponse(true, "Successful execute " + url);
+        response.requestHandle = asyncRequest.handle;
+        return response;
+    }
+
+    /**
+     * Run work that is not a single http task, such as a chunked retrieval, on the library executor.
+     *
+     * @throws RejectedExecutionException if the queue is full and the policy rejects it.
+     */
+    public static void execute(Runnable runnable) {
+        getExecutor().execute(runnable);
+    }
+
+    /**
+     * Run a short action, such as aborting a request whose deadline expired, after a delay on
+     * the library timer thread.
+     *
+     * @param action      the action to run; it must not block.
+     * @param delayMillis the delay in milliseconds.
+     * @return the future to cancel the action with.
+     */
+    public static synchronized ScheduledFuture<?> schedule(Runnable action, long delayMillis) {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "IotKit timer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return timer.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a callback on the callback executor.
+     */
+    public static void deliver(Runnable callback) {
+        Executor deliveryExecutor = callbackExecutor;
+        if (deliveryExecutor == null) {
+            deliveryExecutor = MainThreadExecutor.INSTANCE;
+        }
+        deliveryExecutor.execute(callback);
+    }
+
+    /**
+     * Set where handler callbacks are delivered, for example a background executor so that heavy
+     * response processing does not run on the main thread.
+     *
+     * @param executor the executor for callbacks; null delivers them on the main thread.
+     */
+    public static void setCallbackExecutor(Executor executor) {
+        callbackExecutor = executor;
+    }
+
+    /**
+     * Deliver handler callbacks on the thread of the given handler.
+     *
+     * @param handler the handler for callbacks; null delivers them on the main thread.
+     */
+    public static void setCallbackHandler(final Handler handler) {
+        setCallbackExecutor(handler == null ? null : new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                handler.post(runnable);
+            }
+        });
+    }
+
+    /**
+     * Stop the library executor after the queued requests are done, and the timer after the
+     * scheduled actions are done. A new executor is created with the current {@link IotKit}
+     * settings on next use.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        if (timer != null) {
+            timer.shutdown();
+            timer = null;
+        }
+    }
+
+    //queues the request without the rejection policy, returns false if there is no room
+    private static boolean offer(ThreadPoolExecutor threadPoolExecutor, AsyncRequest asyncRequest) {
+        if (threadPoolExecutor.isShutdown() || !threadPoolExecutor.getQueue().offer(asyncRequest)) {
+            return false;
+        }
+        if (threadPoolExecutor.isShutdown() && threadPoolExecutor.remove(asyncRequest)) {
+            return false;
+        }
+        //the core threads time out when idle, make sure one is there to take the request
+        threadPoolExecutor.prestartCoreThread();
+        return true;
+    }
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = createExecutor(IotKit.getInstance());
+        }
+        return executor;
+    }
+
+    private static ThreadPoolExecutor createExecutor(IotKit objIotKit) {
+        int threads = Math.max(1, objIotKit.asyncCoreThreads);
+        BlockingQueue<Runnable> queue = objIotKit.asyncQueueSize > 0
+                ? new LinkedBlockingQueue<Runnable>(objIotKit.asyncQueueSize)
+                : new LinkedBlockingQueue<Runnable>();
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "IotKit #" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, rejectionHandler(objIotKit.asyncRejectionPolicy));
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+    private static RejectedExecutionHandler rejectionHandler(String policy) {
+        if (POLICY_CALLER_RUNS.equals(policy)) {
+            return new RejectedExecutionHandler() {
+                private final RejectedExecutionHandler callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+
+                @Override
+                public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+                    //network calls must not run on the main thread
+                    if (Looper.myLooper() == Looper.getMainLooper()) {
+                        throw new RejectedExecutionException(ERR_REJECTED);
+                    }
+                    callerRuns.rejectedExecution(runnable, threadPoolExecutor);
+                }
+            };
+        } else if (POLICY_DISCARD_OLDEST.equals(policy)) {
+            return new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+                    if (threadPoolExecutor.isShutdown()) {
+                        throw new RejectedExecutionException(ERR_REJECTED);
+                    }
+                    Runnable oldest = threadPoolExecutor.getQueue().poll();
+                    if (oldest instanceof AsyncRequest) {
+                        ((AsyncRequest) oldest).reject();
+                    }
+                    threadPoolExecutor.execute(runnable);
+                }
+            };
+        }
+        return new ThreadPoolExecutor.AbortPolicy();
+    }
+
+    //one queued doAsync call
+    private static class AsyncRequest implements Runnable {
+        private final HttpTask httpTask;
+        private final String url;
+        final RequestHandle handle;
+
+        AsyncRequest(HttpTask httpTask, String url, RequestHandle handle) {
+            this.httpTask = httpTask;
+            this.url = url;
+            this.handle = handle;
+        }
+
+        @Override
+        public void run() {
+            if (handle.isDone()) {
+                return;
+            }
+            CloudResponse response;
+            RequestHandle.setCurrent(handle);
+            try {
+                response = httpTask.doSync(url);
+            } finally {
+                RequestHandle.setCurrent(null);
+            }
+            handle.complete(response);
+        }
+
+        void reject() {
+            IotKitLog.w(TAG, "%s: %s", ERR_REJECTED, url);
+            handle.releaseReservedPermit();
+            handle.complete(new CloudResponse(false, ERR_REJECTED));
+        }
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable runnable) {
+            handler.post(runnable);
+        }
+    }
+}
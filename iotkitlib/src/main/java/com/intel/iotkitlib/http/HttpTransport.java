@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import java.io.IOException;
+
+/**
+ * Sends requests over the network for the http tasks. The library has an Apache HttpClient
+ * and an HttpURLConnection transport; another implementation, such as an in-memory fake for
+ * tests, can be set with {@link AbstractHttpTask#setDefaultTransport(HttpTransport)}.
+ * <p/>
+ * Implementations must be thread safe; the same transport serves all the tasks.
+ */
+public interface HttpTransport {
+    /**
+     * Send the request and return once the status line and headers are received.
+     *
+     * @param request the request to send.
+     * @return the response; the caller reads its content and closes it.
+     * @throws IOException if the request cannot be sent or the response cannot be received.
+     */
+    TransportResponse execute(CloudRequest request) throws IOException;
+}
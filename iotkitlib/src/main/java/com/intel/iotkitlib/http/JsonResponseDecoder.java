@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import android.util.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Decodes a successful (2xx) response body straight from the network stream, so that large
+ * responses are turned into typed objects without first being read into a String.
+ * <p/>
+ * The decoded object is available from {@link CloudResponse#getDecodedResponse()}; the
+ * response String is left empty in that case. A body the decoder cannot parse is not retried;
+ * the response has code 0 and {@link #ERR_DECODE}.
+ */
+public interface JsonResponseDecoder {
+    // Errors
+    String ERR_DECODE = "Response body cannot be decoded";
+
+    /**
+     * @param reader incremental reader positioned at the start of the response body.
+     * @return the decoded response.
+     * @throws IOException if the body cannot be read or is not the expected json.
+     */
+    Object decode(JsonReader reader) throws IOException;
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKit;
+
+/**
+ * Token bucket that spreads the requests of one endpoint group over time. The bucket holds up
+ * to burst tokens and refills at the given rate; a request takes one token, and when the bucket
+ * is empty it waits its turn instead of failing, so bursts are smoothed locally and the
+ * sustained rate stays under the server quota.
+ * <p/>
+ * The groups and their limits are read from the "rate_limits" settings in {@link IotKit};
+ * see {@link IotKit#getRateLimiter(String)}.
+ */
+public class RateLimiter {
+    public static final String GROUP_DATA_SUBMIT = "data_submit";
+    public static final String GROUP_INQUIRY = "inquiry";
+    public static final String GROUP_MANAGEMENT = "management";
+
+    private final String group;
+    private final double permitsPerMilli;
+    private final double burst;
+    //may go below zero; the deficit is the time already promised to waiting requests
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param group             name of the endpoint group, for logging.
+     * @param requestsPerSecond sustained rate of requests.
+     * @param burst             number of requests that can be sent at once after a quiet period.
+     */
+    public RateLimiter(String group, double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.group = group;
+        this.permitsPerMilli = requestsPerSecond / 1000;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    public String getGroup() { return group; }
+
+    /**
+     * Take a token, to be used after the returned wait.
+     *
+     * @return the time in milliseconds to wait before the request can be sent; 0 to send it now.
+     */
+    public synchronized long reserve() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerMilli);
+        lastRefill = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerMilli);
+    }
+
+    /**
+     * Give back a token taken with {@link #reserve()} for a request that was not sent, for
+     * example because it was rejected or cancelled while queued.
+     */
+    public synchronized void release() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+
+    /**
+     * Take a token and wait until the request can be sent.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+}
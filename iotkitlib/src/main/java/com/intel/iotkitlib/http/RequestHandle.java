@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle of an async request, returned with {@link CloudResponse#getRequestHandle()}. It can
+ * cancel the request, wait for its response and call listeners when it completes.
+ * <p/>
+ * A cancelled request that is still queued is not sent; one that is in progress is aborted,
+ * which closes its connection. Either way the handler and listeners get a response with code 0
+ * and {@link #ERR_CANCELLED} right away. Handler and listeners are called once, on the callback
+ * executor of {@link HttpTaskExecutor}.
+ */
+public class RequestHandle {
+    // Errors
+    public static final String ERR_CANCELLED = "Request cancelled";
+
+    /**
+     * Gets the response of a completed request.
+     */
+    public interface Listener {
+        void onComplete(CloudResponse response);
+    }
+
+    //handle of the async request running on the current thread
+    private static final ThreadLocal<RequestHandle> current = new ThreadLocal<RequestHandle>();
+
+    private final HttpTaskHandler taskHandler;
+    private final List<Listener> listeners = new ArrayList<Listener>();
+    private CloudResponse response;
+    private boolean done;
+    private boolean cancelled;
+    private Runnable cancelAction;
+    private CloudRequest request;
+    //limiter whose token was taken for the first attempt, until that attempt starts
+    private RateLimiter reservedPermit;
+
+    RequestHandle(HttpTaskHandler taskHandler) {
+        this.taskHandler = taskHandler;
+    }
+
+    /**
+     * Cancel the request if it has not completed yet.
+     *
+     * @return true if the request was cancelled; false if it had already completed.
+     */
+    public boolean cancel() {
+        Runnable action;
+        CloudRequest inFlight;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            cancelled = true;
+            action = cancelAction;
+            inFlight = request;
+            cancelAction = null;
+            request = null;
+        }
+        if (action != null) {
+            action.run();
+        }
+        releaseReservedPermit();
+        if (inFlight != null) {
+            inFlight.cancel();
+        }
+        complete(new CloudResponse(false, ERR_CANCELLED));
+        return true;
+    }
+
+    public synchronized boolean isCancelled() { return cancelled; }
+
+    public synchronized boolean isDone() { return done; }
+
+    /**
+     * Wait for the response. Must not be called on the thread that handler callbacks are
+     * delivered on.
+     *
+     * @return the response, as passed to the handler.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public synchronized CloudResponse await() throws InterruptedException {
+        while (!done) {
+            wait();
+        }
+        return response;
+    }
+
+    /**
+     * Wait at most the given time for the response.
+     *
+     * @return the response, or null if the request did not complete in time.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public synchronized CloudResponse await(long timeout, TimeUnit unit) throws InterruptedException {
+        long waitUntil = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!done) {
+            long remaining = waitUntil - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return null;
+            }
+            wait(remaining);
+        }
+        return response;
+    }
+
+    /**
+     * Call the listener when the request completes, or right away if it has completed.
+     */
+    public void addListener(final Listener listener) {
+        final CloudResponse completed;
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return;
+            }
+            completed = response;
+        }
+        HttpTaskExecutor.deliver(new Runnable() {
+            @Override
+            public void run() {
+                listener.onComplete(completed);
+            }
+        });
+    }
+
+    //run on cancel, e.g. to take the request off the executor queue
+    void setCancelAction(Runnable cancelAction) {
+        synchronized (this) {
+            if (!cancelled) {
+                this.cancelAction = cancelAction;
+                return;
+            }
+        }
+        cancelAction.run();
+    }
+
+    //the rate limiter token of the first attempt was taken when the request was queued
+    synchronized void setReservedPermit(RateLimiter rateLimiter) {
+        reservedPermit = rateLimiter;
+    }
+
+    //true once, for the first request sent on behalf of this handle
+    synchronized boolean takeReservedPermit() {
+        boolean reserved = reservedPermit != null;
+        reservedPermit = null;
+        return reserved;
+    }
+
+    //gives the token back to the limiter if the request was not sent
+    void releaseReservedPermit() {
+        RateLimiter rateLimiter;
+        synchronized (this) {
+            rateLimiter = reservedPermit;
+            reservedPermit = null;
+        }
+        if (rateLimiter != null) {
+            rateLimiter.release();
+        }
+    }
+
+    //the request sent on behalf of this handle; aborted on cancel
+    void attach(CloudRequest request) {
+        synchronized (this) {
+            if (!cancelled) {
+                this.request = request;
+                return;
+            }
+        }
+        request.cancel();
+    }
+
+    /**
+     * Complete the handle and deliver the response to the handler and listeners.
+     *
+     * @return false if the handle had already completed, e.g. because it was cancelled.
+     */
+    boolean complete(final CloudResponse response) {
+        final List<Listener> completedListeners;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.response = response;
+            done = true;
+            cancelAction = null;
+            request = null;
+            completedListeners = new ArrayList<Listener>(listeners);
+            listeners.clear();
+            notifyAll();
+        }
+        if (taskHandler == null && completedListeners.isEmpty()) {
+            return true;
+        }
+        HttpTaskExecutor.deliver(new Runnable() {
+            @Override
+            public void run() {
+                HttpResponseReader.deliver(taskHandler, response);
+                for (Listener listener : completedListeners) {
+                    listener.onComplete(response);
+                }
+            }
+        });
+        return true;
+    }
+
+    static RequestHandle current() {
+        return current.get();
+    }
+
+    static void setCurrent(RequestHandle handle) {
+        if (handle != null) {
+            current.set(handle);
+        } else {
+            current.remove();
+        }
+    }
+}
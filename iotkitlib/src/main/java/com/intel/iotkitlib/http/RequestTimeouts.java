@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKit;
+
+/**
+ * Time limits of a request in milliseconds; 0 means no limit.
+ * <ul>
+ * <li>connect - to open the connection, or to get one from the connection pool.</li>
+ * <li>read - between two packets of the response.</li>
+ * <li>deadline - for the whole call, retries included; the request is aborted when it expires
+ * and its response has code 0 and {@link #ERR_DEADLINE_EXCEEDED}.</li>
+ * </ul>
+ * The defaults and the limits of each module are read from the "timeouts" settings in
+ * {@link IotKit}.
+ */
+public class RequestTimeouts {
+    // Errors
+    public static final String ERR_DEADLINE_EXCEEDED = "Request deadline exceeded";
+
+    private final long connectTimeout;
+    private final long readTimeout;
+    private final long deadline;
+
+    public RequestTimeouts(long connectTimeout, long readTimeout, long deadline) {
+        if (connectTimeout < 0 || readTimeout < 0 || deadline < 0) {
+            throw new IllegalArgumentException("timeouts cannot be negative");
+        }
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.deadline = deadline;
+    }
+
+    public long getConnectTimeout() { return connectTimeout; }
+
+    public long getReadTimeout() { return readTimeout; }
+
+    public long getDeadline() { return deadline; }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKit;
+
+import org.apache.http.impl.cookie.DateParseException;
+import org.apache.http.impl.cookie.DateUtils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * When and how often a failed request is sent again. A request is retried when it cannot be
+ * sent or its response cannot be read, or when the response code is one of the retry codes.
+ * <p/>
+ * The wait before attempt n + 1 is the initial backoff times 2^(n - 1), capped at the maximum
+ * backoff, of which up to the jitter fraction is taken off at random so that devices that
+ * failed together do not retry together. A longer "Retry-After" from the server is honoured;
+ * if it asks for more than the maximum backoff the request is not retried.
+ * <p/>
+ * GET, PUT and DELETE requests use {@link #getDefault()}; POST requests are only retried when
+ * a policy is set on the task.
+ */
+public class RetryPolicy {
+    private static final String RETRY_AFTER = "Retry-After";
+
+    /**
+     * Policy that sends a request only once.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, 0, new int[0]);
+
+    private static RetryPolicy defaultPolicy = null;
+    private static final Random random = new Random();
+
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final double jitter;
+    private final int[] retryOnCodes;
+
+    /**
+     * @param maxAttempts    number of times a request is sent at most, the first one included.
+     * @param initialBackoff wait in milliseconds before the second attempt.
+     * @param maxBackoff     longest wait in milliseconds between two attempts.
+     * @param jitter         fraction of the wait, 0 to 1, that is taken off at random.
+     * @param retryOnCodes   response codes that are retried, e.g. 503.
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, double jitter, int[] retryOnCodes) {
+        if (maxAttempts < 1 || initialBackoff < 0 || maxBackoff < initialBackoff || jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("invalid retry policy");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.retryOnCodes = retryOnCodes.clone();
+        Arrays.sort(this.retryOnCodes);
+    }
+
+    /**
+     * Get the policy of the idempotent requests. It is created on first use from the "retry"
+     * settings in {@link IotKit}.
+     *
+     * @return the default retry policy.
+     */
+    public static synchronized RetryPolicy getDefault() {
+        if (defaultPolicy == null) {
+            IotKit objIotKit = IotKit.getInstance();
+            defaultPolicy = new RetryPolicy(objIotKit.retryMaxAttempts, objIotKit.retryInitialBackoff,
+                    objIotKit.retryMaxBackoff, objIotKit.retryJitter, objIotKit.retryOnCodes);
+        }
+        return defaultPolicy;
+    }
+
+    /**
+     * Replace the policy of the idempotent requests.
+     *
+     * @param policy the new default policy; null goes back to the configured one.
+     */
+    public static synchronized void setDefault(RetryPolicy policy) {
+        defaultPolicy = policy;
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+
+    /**
+     * @return true if a response with this code is retried.
+     */
+    public boolean isRetryable(int code) {
+        return Arrays.binarySearch(retryOnCodes, code) >= 0;
+    }
+
+    /**
+     * Get the wait before the next attempt.
+     *
+     * @param attempt  the attempt that failed, starting at 1.
+     * @param response the response of the failed attempt; null if it failed with an error.
+     * @return the wait in milliseconds, or -1 if the request must not be retried.
+     */
+    public long getBackoff(int attempt, CloudResponse response) {
+        if (attempt >= maxAttempts) {
+            return -1;
+        }
+        long backoff = initialBackoff << Math.min(attempt - 1, 30);
+        if (backoff > maxBackoff || backoff < 0) {
+            backoff = maxBackoff;
+        }
+        backoff -= (long) (backoff * jitter * random.nextDouble());
+        long retryAfter = response != null ? parseRetryAfter(response.getHeader(RETRY_AFTER)) : -1;
+        if (retryAfter > maxBackoff) {
+            return -1;
+        }
+        return Math.max(backoff, retryAfter);
+    }
+
+    //delay in seconds or an http date
+    private static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException nfe) {
+            try {
+                return Math.max(0, DateUtils.parseDate(retryAfter).getTime() - System.currentTimeMillis());
+            } catch (DateParseException dpe) {
+                return -1;
+            }
+        }
+    }
+}
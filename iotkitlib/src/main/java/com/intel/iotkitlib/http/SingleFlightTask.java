@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKitLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps a GET so that identical GETs running at the same time share one network call.
+ * Requests are identical when they have the same url and Authorization header; the first one
+ * goes to the network and every request that arrives while it is in flight gets its response.
+ */
+public class SingleFlightTask implements HttpTask {
+    private static final String TAG = "SingleFlightTask";
+
+    // Errors
+    public static final String ERR_INTERRUPTED = "Interrupted while waiting for identical request";
+
+    private static final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+    private final HttpGetTask httpGetTask;
+
+    public SingleFlightTask(HttpGetTask httpGetTask) {
+        this.httpGetTask = httpGetTask;
+    }
+
+    /**
+     * @return true if the task can share its response; a task with a response decoder cannot.
+     */
+    public static boolean canCoalesce(HttpTask httpTask) {
+        return httpTask instanceof HttpGetTask && ((HttpGetTask) httpTask).getResponseDecoder() == null;
+    }
+
+    public CloudResponse doAsync(final String url, final HttpTaskHandler taskHandler) {
+        final String key = key(url);
+        final RequestHandle handle = new RequestHandle(taskHandler);
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight != null) {
+                if (flight.addHandle(handle)) {
+                    if (IotKitLog.DEBUG) {
+                        IotKitLog.d(TAG, "joined in flight request %s", url);
+                    }
+                    return started(key, url, flight, handle);
+                }
+                //completed meanwhile, start a new one
+                flights.remove(key, flight);
+                continue;
+            }
+            final Flight newFlight = new Flight();
+            if (flights.putIfAbsent(key, newFlight) != null) {
+                continue;
+            }
+            newFlight.addHandle(handle);
+            CloudResponse submitted = new LeaderTask(key, newFlight).doAsync(url, new CloudResponseHandler() {
+                @Override
+                public void taskResponse(CloudResponse response) {
+                    //only completes the flight if the request was discarded or cancelled before it ran
+                    finish(key, newFlight, response);
+                }
+            });
+            if (!submitted.getStatus()) {
+                newFlight.removeHandle(handle);
+                finish(key, newFlight, submitted);
+                return submitted;
+            }
+            newFlight.setLeader(submitted.getRequestHandle());
+            return started(key, url, newFlight, handle);
+        }
+    }
+
+    //the network call is only cancelled when no request is waiting for it any more
+    private static CloudResponse started(final String key, String url, final Flight flight,
+                                         final RequestHandle handle) {
+        handle.setCancelAction(new Runnable() {
+            @Override
+            public void run() {
+                RequestHandle leader = flight.removeHandle(handle);
+                if (leader != null) {
+                    //later identical requests start a new flight
+                    flights.remove(key, flight);
+                    leader.cancel();
+                }
+            }
+        });
+        CloudResponse response = new CloudResponse(true, "Successful execute " + url);
+        response.requestHandle = handle;
+        return response;
+    }
+
+    public CloudResponse doSync(String url) {
+        String key = key(url);
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight != null) {
+                try {
+                    if (IotKitLog.DEBUG) {
+                        IotKitLog.d(TAG, "waiting for in flight request %s", url);
+                    }
+                    return flight.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return new CloudResponse(false, ERR_INTERRUPTED);
+                }
+            }
+            Flight newFlight = new Flight();
+            if (flights.putIfAbsent(key, newFlight) == null) {
+                return lead(key, newFlight, url);
+            }
+        }
+    }
+
+    private CloudResponse lead(String key, Flight flight, String url) {
+        CloudResponse response = null;
+        try {
+            response = httpGetTask.doSync(url);
+            return response;
+        } finally {
+            finish(key, flight, response != null ? response : new CloudResponse(false, "Request failed " + url));
+        }
+    }
+
+    private static void finish(String key, Flight flight, CloudResponse response) {
+        flights.remove(key, flight);
+        List<RequestHandle> handles = flight.complete(response);
+        if (handles == null) {
+            return;
+        }
+        for (RequestHandle handle : handles) {
+            handle.complete(response);
+        }
+    }
+
+    private String key(String url) {
+        return "GET " + httpGetTask.requestKey(url);
+    }
+
+    //sends the network call of a flight and completes the flight with its response
+    class LeaderTask implements HttpTask {
+        private final String key;
+        private final Flight flight;
+
+        LeaderTask(String key, Flight flight) {
+            this.key = key;
+            this.flight = flight;
+        }
+
+        @Override
+        public CloudResponse doAsync(String url, HttpTaskHandler taskHandler) {
+            return HttpTaskExecutor.submit(this, url, taskHandler);
+        }
+
+        @Override
+        public CloudResponse doSync(String url) {
+            return lead(key, flight, url);
+        }
+    }
+
+    //one network call and the requests waiting for it
+    private static class Flight {
+        private final List<RequestHandle> handles = new ArrayList<RequestHandle>();
+        private RequestHandle leader;
+        private int waiters;
+        private CloudResponse response;
+        private boolean done;
+
+        synchronized boolean addHandle(RequestHandle handle) {
+            if (done) {
+                return false;
+            }
+            handles.add(handle);
+            return true;
+        }
+
+        synchronized void setLeader(RequestHandle leader) {
+            this.leader = leader;
+        }
+
+        //returns the handle of the network call if nobody waits for it any more, otherwise null
+        synchronized RequestHandle removeHandle(RequestHandle handle) {
+            handles.remove(handle);
+            return handles.isEmpty() && waiters == 0 && !done ? leader : null;
+        }
+
+        //returns the handles to complete, or null if the flight was already completed
+        synchronized List<RequestHandle> complete(CloudResponse response) {
+            if (done) {
+                return null;
+            }
+            this.response = response;
+            done = true;
+            notifyAll();
+            return handles;
+        }
+
+        synchronized CloudResponse await() throws InterruptedException {
+            waiters++;
+            try {
+                while (!done) {
+                    wait();
+                }
+            } finally {
+                waiters--;
+            }
+            return response;
+        }
+    }
+}
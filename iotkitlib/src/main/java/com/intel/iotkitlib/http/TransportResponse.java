@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import org.apache.http.NameValuePair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Response returned by an {@link HttpTransport}. The body is read from {@link #getContent()}
+ * and the response must be closed, which hands the connection back to the transport.
+ */
+public class TransportResponse implements Closeable {
+    private final int code;
+    private final List<NameValuePair> headers;
+    private final InputStream content;
+    private final long contentLength;
+    private final Closeable release;
+
+    /**
+     * @param code          the http status code.
+     * @param headers       the response headers.
+     * @param content       the response body; null if the response has none.
+     * @param contentLength length of the body as sent, or -1 if unknown.
+     * @param release       called on close to release the connection; can be null.
+     */
+    public TransportResponse(int code, List<NameValuePair> headers, InputStream content,
+                             long contentLength, Closeable release) {
+        this.code = code;
+        this.headers = headers;
+        this.content = content;
+        this.contentLength = contentLength;
+        this.release = release;
+    }
+
+    public int getCode() { return code; }
+
+    public List<NameValuePair> getHeaders() { return headers; }
+
+    /**
+     * @return the first value of the header, or null if the response does not have it.
+     */
+    public String getHeader(String name) {
+        for (NameValuePair header : headers) {
+            if (header.getName().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    public InputStream getContent() { return content; }
+
+    public long getContentLength() { return contentLength; }
+
+    @Override
+    public void close() throws IOException {
+        if (release != null) {
+            release.close();
+        } else if (content != null) {
+            content.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.http;
+
+import com.intel.iotkitlib.utils.IotKit;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transport on the platform HttpURLConnection, which pools keep-alive connections itself.
+ * On Android it asks for gzip responses and decompresses them transparently, unless
+ * gzip responses are turned off in the "compression" settings of {@link IotKit}.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    @Override
+    public TransportResponse execute(CloudRequest request) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(request.getUrl()).openConnection();
+        try {
+            connection.setRequestMethod(request.getMethod());
+            connection.setConnectTimeout((int) request.getConnectTimeout());
+            connection.setReadTimeout((int) request.getReadTimeout());
+            request.setAbortAction(new Runnable() {
+                @Override
+                public void run() {
+                    connection.disconnect();
+                }
+            });
+            for (NameValuePair header : request.getHeaders()) {
+                connection.addRequestProperty(header.getName(), header.getValue());
+            }
+            if (!IotKit.getInstance().acceptGzipResponses && request.getHeader(ACCEPT_ENCODING) == null) {
+                connection.setRequestProperty(ACCEPT_ENCODING, "identity");
+            }
+            byte[] body = request.getBody();
+            if (body != null) {
+                if (request.getContentEncoding() != null) {
+                    connection.setRequestProperty(HttpRequestBody.CONTENT_ENCODING, request.getContentEncoding());
+                }
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                OutputStream out = connection.getOutputStream();
+                try {
+                    out.write(body);
+                } finally {
+                    out.close();
+                }
+            }
+            int code = connection.getResponseCode();
+            List<NameValuePair> headers = new ArrayList<NameValuePair>();
+            for (Map.Entry<String, List<String>> field : connection.getHeaderFields().entrySet()) {
+                //the status line has a null name
+                if (field.getKey() == null) {
+                    continue;
+                }
+                for (String value : field.getValue()) {
+                    headers.add(new BasicNameValuePair(field.getKey(), value));
+                }
+            }
+            InputStream content = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            //closing the content keeps the connection for reuse
+            return new TransportResponse(code, headers, content, connection.getContentLength(), null);
+        } catch (IOException ie) {
+            connection.disconnect();
+            throw ie;
+        } catch (RuntimeException re) {
+            connection.disconnect();
+            throw re;
+        }
+    }
+}
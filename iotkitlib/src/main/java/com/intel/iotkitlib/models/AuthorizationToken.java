@@ -27,6 +27,7 @@ import android.util.Log;
 import com.intel.iotkitlib.AuthorizationManagement;
 import com.intel.iotkitlib.RequestStatusHandler;
 import com.intel.iotkitlib.http.CloudResponse;
+import com.intel.iotkitlib.utils.SessionState;
 import com.intel.iotkitlib.utils.Utilities;
 
 import org.json.JSONArray;
@@ -74,8 +75,7 @@ public class AuthorizationToken {
         if (token == null) {
             Log.w(TAG, "Token cannot be empty");
         }
-        Utilities.editor.putString("auth_token", token);
-        Utilities.editor.commit();
+        SessionState.getInstance().setAuthToken(token);
     }
 
     public static void parseAndStoreUserId(String response, int responseCode) throws JSONException {
@@ -96,7 +96,9 @@ public class AuthorizationToken {
         if (Utilities.editor == null) {
             Log.w(TAG, "invalid shared preferences-editor object");
         }
-        Utilities.editor.clear().commit();
+        Utilities.clearPreferences();
+        Utilities.invalidateSensorIndex();
+        SessionState.getInstance().clear();
     }
 
     //storing user id to shared prefs
@@ -105,8 +107,7 @@ public class AuthorizationToken {
         if (Utilities.editor == null) {
             Log.w(TAG, "invalid shared preferences-editor object");
         }
-        Utilities.editor.putString("user_id", userId);
-        Utilities.editor.commit();
+        SessionState.getInstance().setUserId(userId);
     }
 
     //validate token-info and store in shared-prefs
@@ -119,9 +120,8 @@ public class AuthorizationToken {
             Log.e(TAG, "invalid shared preference editor");
             return;
         }
-        Utilities.editor.putString("expiry", payLoadJson.getString("exp"));
+        SessionState.getInstance().setAuthTokenExpiry(payLoadJson.getString("exp"));
         storeUserId(payLoadJson.getString("sub"));
-        Utilities.editor.commit();
         JSONArray accountsArray = null;
         if (!payLoadJson.isNull("accounts")) {
             accountsArray = payLoadJson.getJSONArray("accounts");
@@ -144,32 +144,28 @@ public class AuthorizationToken {
     public static JSONObject parseAndStoreAccountIdAndName(String response) throws JSONException {
         //Set the first account details to shared prefs
         JSONObject accountJson = new JSONObject(response);
-        Utilities.editor.putString("account_name", accountJson.getString("name"));
-        Utilities.editor.putString("account_id", accountJson.getString("id"));
-        Utilities.editor.commit();
+        Utilities.storePreference("account_name", accountJson.getString("name"));
+        SessionState.getInstance().setAccountId(accountJson.getString("id"));
         return accountJson;
     }
 
     public static void parseAndStoreActivationCode(String response) throws JSONException {
         //Set the first account details to shared prefs
         JSONObject accountJson = new JSONObject(response);
-        Utilities.editor.putString("activationCode", accountJson.getString("activationCode"));
-        Utilities.editor.commit();
+        Utilities.storePreference("activationCode", accountJson.getString("activationCode"));
     }
 
     public static void parseAndStoreUserMailId(String response, int responseCode) throws JSONException {
         if (responseCode == 200) {
             //Set the first account details to shared prefs
             JSONObject accountJson = new JSONObject(response);
-            Utilities.editor.putString("email", accountJson.getString("email"));
-            Utilities.editor.commit();
+            Utilities.storePreference("email", accountJson.getString("email"));
         }
     }
 
     public static void parseAndStoreAccountName(String accountName, int responseCode) throws JSONException {
         if (responseCode == 200) {
-            Utilities.editor.putString("account_name", accountName);
-            Utilities.editor.commit();
+            Utilities.storePreference("account_name", accountName);
         }
     }
 
@@ -24,13 +24,12 @@ package com.intel.iotkitlib.models;
 
 import android.util.Log;
 
+import com.intel.iotkitlib.utils.SessionState;
 import com.intel.iotkitlib.utils.Utilities;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.Map;
-
 
 public class DeviceToken {
     private static final String TAG = "DeviceToken";
@@ -42,8 +41,7 @@ public class DeviceToken {
             return;
         }
         if (!(deviceCreationJson.isNull("deviceId"))) {
-            Utilities.editor.putString("deviceId", deviceCreationJson.getString("deviceId"));
-            Utilities.editor.commit();
+            SessionState.getInstance().setDeviceId(deviceCreationJson.getString("deviceId"));
         }
 
     }
@@ -55,8 +53,7 @@ public class DeviceToken {
             return;
         }
         if (!(deviceActivationJson.isNull("deviceToken"))) {
-            Utilities.editor.putString("device_token", deviceActivationJson.getString("deviceToken"));
-            Utilities.editor.commit();
+            SessionState.getInstance().setDeviceToken(deviceActivationJson.getString("deviceToken"));
         }
     }
 
@@ -68,12 +65,12 @@ public class DeviceToken {
         JSONObject addComponentJson = new JSONObject(response);
         if (Utilities.editor == null) {
             Log.d(TAG, "Not able to access shared pref editor object to store component values");
+            return;
         }
-        Utilities.editor.putString("sensor-" + addComponentJson.getString("name"), addComponentJson.getString("cid"));
+        Utilities.storeSensorId(addComponentJson.getString("name"), addComponentJson.getString("cid"));
         //Utilities.editor.putString("cid", addComponentJson.getString("cid"));
         //Utilities.editor.putString("cname", addComponentJson.getString("name"));
         //Utilities.editor.putString("ctype", addComponentJson.getString("type"));
-        Utilities.editor.commit();
     }
 
     public static void deleteTheComponentFromStorage(String componentName, int responseCode) {
@@ -81,10 +78,7 @@ public class DeviceToken {
             Log.d(TAG, "failure response for delete component on device");
             return;
         }
-        Map.Entry<String, ?> sensorMatch = null;
-        if ((sensorMatch = Utilities.getSensorMatch(componentName)) != null) {
-            Utilities.editor.remove(sensorMatch.getKey()).commit();
-        } else {
+        if (!Utilities.removeSensorId(componentName)) {
             Log.d(TAG, "component name not found in preferences");
         }
         /*Utilities.editor.remove("cid");
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.models;
+
+//single sample of a device component, submitted as one element of the "data" array
+public class Observation {
+    private String componentName;
+    private String componentValue;
+    private long timestamp;
+    private Double latitude;
+    private Double longitude;
+    private Double height;
+
+    public Observation(String componentName, String componentValue) {
+        this(componentName, componentValue, System.currentTimeMillis());
+    }
+
+    public Observation(String componentName, String componentValue, long timestamp) {
+        this.componentName = componentName;
+        this.componentValue = componentValue;
+        this.timestamp = timestamp;
+    }
+
+    public void setLocation(Double latitude, Double longitude, Double height) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.height = height;
+    }
+
+    public String getComponentName() { return componentName; }
+
+    public String getComponentValue() { return componentValue; }
+
+    public long getTimestamp() { return timestamp; }
+
+    public Double getLatitude() { return latitude; }
+
+    public Double getLongitude() { return longitude; }
+
+    public Double getHeight() { return height; }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.models;
+
+/**
+ * Samples of one component from a data search, stored column-wise in primitive arrays.
+ * Point i is (getTimestamps()[i], getValues()[i]); the location arrays are null when no point
+ * of the series has a location, and hold NaN for points without one.
+ */
+public class TimeSeries {
+    private final String deviceId;
+    private final String deviceName;
+    private final String componentId;
+    private final String componentName;
+    private final String componentType;
+    private final long[] timestamps;
+    private final double[] values;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] altitudes;
+
+    public TimeSeries(String deviceId, String deviceName, String componentId, String componentName,
+                      String componentType, long[] timestamps, double[] values,
+                      double[] latitudes, double[] longitudes, double[] altitudes) {
+        this.deviceId = deviceId;
+        this.deviceName = deviceName;
+        this.componentId = componentId;
+        this.componentName = componentName;
+        this.componentType = componentType;
+        this.timestamps = timestamps;
+        this.values = values;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.altitudes = altitudes;
+    }
+
+    public String getDeviceId() { return deviceId; }
+
+    public String getDeviceName() { return deviceName; }
+
+    public String getComponentId() { return componentId; }
+
+    public String getComponentName() { return componentName; }
+
+    public String getComponentType() { return componentType; }
+
+    public int size() { return timestamps.length; }
+
+    public long[] getTimestamps() { return timestamps; }
+
+    /**
+     * @return the sample values; NaN for a sample that is not a number.
+     */
+    public double[] getValues() { return values; }
+
+    public boolean hasLocation() { return latitudes != null; }
+
+    public double[] getLatitudes() { return latitudes; }
+
+    public double[] getLongitudes() { return longitudes; }
+
+    public double[] getAltitudes() { return altitudes; }
+}
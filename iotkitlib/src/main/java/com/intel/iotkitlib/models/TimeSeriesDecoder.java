@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.models;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.intel.iotkitlib.http.JsonResponseDecoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes a data search response into a {@link TimeSeriesResult}, appending each point straight
+ * from the stream into the primitive arrays of its series.
+ */
+public class TimeSeriesDecoder implements JsonResponseDecoder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    @Override
+    public Object decode(JsonReader reader) throws IOException {
+        long from = 0;
+        long to = 0;
+        List<TimeSeries> series = new ArrayList<TimeSeries>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("from") && reader.peek() != JsonToken.NULL) {
+                from = reader.nextLong();
+            } else if (name.equals("to") && reader.peek() != JsonToken.NULL) {
+                to = reader.nextLong();
+            } else if (name.equals("series") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    series.add(readSeries(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new TimeSeriesResult(from, to, series);
+    }
+
+    private TimeSeries readSeries(JsonReader reader) throws IOException {
+        String deviceId = null;
+        String deviceName = null;
+        String componentId = null;
+        String componentName = null;
+        String componentType = null;
+        SeriesBuilder points = new SeriesBuilder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("points") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readPoint(reader, points);
+                }
+                reader.endArray();
+            } else if (reader.peek() != JsonToken.STRING) {
+                reader.skipValue();
+            } else if (name.equals("deviceId")) {
+                deviceId = reader.nextString();
+            } else if (name.equals("deviceName")) {
+                deviceName = reader.nextString();
+            } else if (name.equals("componentId")) {
+                componentId = reader.nextString();
+            } else if (name.equals("componentName")) {
+                componentName = reader.nextString();
+            } else if (name.equals("componentType")) {
+                componentType = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return points.build(deviceId, deviceName, componentId, componentName, componentType);
+    }
+
+    private void readPoint(JsonReader reader, SeriesBuilder points) throws IOException {
+        long timestamp = 0;
+        double value = Double.NaN;
+        double latitude = Double.NaN;
+        double longitude = Double.NaN;
+        double altitude = Double.NaN;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("ts") && reader.peek() != JsonToken.NULL) {
+                timestamp = reader.nextLong();
+            } else if (name.equals("value")) {
+                value = readDouble(reader);
+            } else if (name.equals("lat")) {
+                latitude = readDouble(reader);
+            } else if (name.equals("lon")) {
+                longitude = readDouble(reader);
+            } else if (name.equals("alt")) {
+                altitude = readDouble(reader);
+            } else if (name.equals("coordinates") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                //[lat, lon, alt]
+                reader.beginArray();
+                for (int i = 0; reader.hasNext(); i++) {
+                    double coordinate = readDouble(reader);
+                    if (i == 0) {
+                        latitude = coordinate;
+                    } else if (i == 1) {
+                        longitude = coordinate;
+                    } else if (i == 2) {
+                        altitude = coordinate;
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        points.add(timestamp, value, latitude, longitude, altitude);
+    }
+
+    //the cloud sends values as strings; anything that is not a number becomes NaN
+    private static double readDouble(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER) {
+            return reader.nextDouble();
+        } else if (token == JsonToken.STRING) {
+            try {
+                return Double.parseDouble(reader.nextString());
+            } catch (NumberFormatException nfe) {
+                return Double.NaN;
+            }
+        }
+        reader.skipValue();
+        return Double.NaN;
+    }
+
+    //growable primitive columns of one series
+    private static class SeriesBuilder {
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private double[] values = new double[INITIAL_CAPACITY];
+        private double[] latitudes;
+        private double[] longitudes;
+        private double[] altitudes;
+        private int size;
+
+        void add(long timestamp, double value, double latitude, double longitude, double altitude) {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                values = Arrays.copyOf(values, capacity);
+                if (latitudes != null) {
+                    latitudes = growLocation(latitudes, capacity);
+                    longitudes = growLocation(longitudes, capacity);
+                    altitudes = growLocation(altitudes, capacity);
+                }
+            }
+            boolean hasLocation = !Double.isNaN(latitude) || !Double.isNaN(longitude) || !Double.isNaN(altitude);
+            if (hasLocation && latitudes == null) {
+                latitudes = growLocation(new double[0], timestamps.length);
+                longitudes = growLocation(new double[0], timestamps.length);
+                altitudes = growLocation(new double[0], timestamps.length);
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            if (latitudes != null) {
+                latitudes[size] = latitude;
+                longitudes[size] = longitude;
+                altitudes[size] = altitude;
+            }
+            size++;
+        }
+
+        TimeSeries build(String deviceId, String deviceName, String componentId,
+                         String componentName, String componentType) {
+            return new TimeSeries(deviceId, deviceName, componentId, componentName, componentType,
+                    Arrays.copyOf(timestamps, size), Arrays.copyOf(values, size),
+                    latitudes != null ? Arrays.copyOf(latitudes, size) : null,
+                    longitudes != null ? Arrays.copyOf(longitudes, size) : null,
+                    altitudes != null ? Arrays.copyOf(altitudes, size) : null);
+        }
+
+        private static double[] growLocation(double[] column, int capacity) {
+            double[] grown = Arrays.copyOf(column, capacity);
+            Arrays.fill(grown, column.length, capacity, Double.NaN);
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.models;
+
+import java.util.Collections;
+import java.util.List;
+
+//decoded response of a data search, one series per component
+public class TimeSeriesResult {
+    private final long fromTimeInMillis;
+    private final long toTimeInMillis;
+    private final List<TimeSeries> series;
+
+    public TimeSeriesResult(long fromTimeInMillis, long toTimeInMillis, List<TimeSeries> series) {
+        this.fromTimeInMillis = fromTimeInMillis;
+        this.toTimeInMillis = toTimeInMillis;
+        this.series = Collections.unmodifiableList(series);
+    }
+
+    public long getFromTimeInMillis() { return fromTimeInMillis; }
+
+    public long getToTimeInMillis() { return toTimeInMillis; }
+
+    public List<TimeSeries> getSeries() { return series; }
+
+    /**
+     * @param componentId id of the component to look up.
+     * @return the series of the component, or null if the result has none for it.
+     */
+    public TimeSeries getSeries(String componentId) {
+        for (TimeSeries timeSeries : series) {
+            if (componentId.equals(timeSeries.getComponentId())) {
+                return timeSeries;
+            }
+        }
+        return null;
+    }
+}
@@ -22,16 +22,28 @@
  */
 package com.intel.iotkitlib.utils;
 
-import android.util.Log;
+import com.intel.iotkitlib.BuildConfig;
+import com.intel.iotkitlib.http.HttpInterceptor;
+import com.intel.iotkitlib.http.RateLimiter;
+import com.intel.iotkitlib.http.RequestTimeouts;
+import com.intel.iotkitlib.http.RetryPolicy;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class IotKit {
@@ -42,7 +54,6 @@ public class IotKit {
     public static final String HEADER_AUTHORIZATION = "Authorization";
     public static final String HEADER_AUTHORIZATION_BEARER = "Bearer";
     private static final String TAG = "IotKit";
-    private static IotKit singletonInstance = null;
     public String base_Url;
     public boolean is_Secure;
     public String protocol;
@@ -114,6 +125,55 @@ public class IotKit {
     //public String accountName;
     //public List<String> accountIds;
     public int port;
+    //api paths compiled once, keyed by the api path string
+    private final Map<String, UrlTemplate> urlTemplates = new ConcurrentHashMap<String, UrlTemplate>();
+    //api paths keyed by their name in config.json
+    private final Map<String, String> apiPaths = new HashMap<String, String>();
+    //Response cache settings; only the api paths with a ttl are cached
+    public int responseCacheMemoryBytes = 1024 * 1024;
+    public long responseCacheDiskBytes = 4 * 1024 * 1024;
+    private final Map<UrlTemplate, Long> responseCacheTtls = new LinkedHashMap<UrlTemplate, Long>();
+    //Compression settings; request bodies are only compressed for the listed api paths
+    public boolean acceptGzipResponses = true;
+    public int gzipRequestMinBytes = 1024;
+    private final List<UrlTemplate> gzipRequestApis = new ArrayList<UrlTemplate>();
+    //interceptors run around every request, in registration order
+    private static final HttpInterceptor[] NO_INTERCEPTORS = new HttpInterceptor[0];
+    private final List<HttpInterceptor> interceptors = new CopyOnWriteArrayList<HttpInterceptor>();
+    //Http connection pool settings, applied when the shared http client is created
+    public int maxTotalConnections = 20;
+    public int maxConnectionsPerRoute = 6;
+    public long keepAliveDuration = 30000;
+    public long connectionIdleTimeout = 60000;
+    public boolean coalesceGetRequests = true;
+    //"apache" or "urlconnection", see AbstractHttpTask.getDefaultTransport
+    public String httpTransport = "apache";
+    //Request time limits, by default and for the modules listed in "timeouts" "modules"
+    private RequestTimeouts defaultTimeouts = new RequestTimeouts(15000, 30000, 60000);
+    private final Map<String, RequestTimeouts> moduleTimeouts = new HashMap<String, RequestTimeouts>();
+    //Rate limiters of the endpoint groups; urls of no listed api use the "management" group
+    private final Map<UrlTemplate, RateLimiter> rateLimiters = new LinkedHashMap<UrlTemplate, RateLimiter>();
+    private RateLimiter defaultRateLimiter = null;
+    //apis that are not in the "management" group unless a group lists them
+    private final List<UrlTemplate> unlimitedApis = new ArrayList<UrlTemplate>();
+    //Retry settings of the idempotent requests, see RetryPolicy
+    public int retryMaxAttempts = 3;
+    public long retryInitialBackoff = 500;
+    public long retryMaxBackoff = 10000;
+    public double retryJitter = 0.5;
+    public int[] retryOnCodes = {408, 429, 500, 502, 503, 504};
+    public boolean retrySubmitData = false;
+    //Auth token refresh settings, see AuthTokenManager
+    public long tokenRefreshLead = 5 * 60 * 1000;
+    public long tokenRefreshRetryDelay = 30000;
+    //Chunked data retrieval settings, see DataManagement.retrieveTimeSeriesChunked
+    public long retrieveChunkDuration = 24L * 60 * 60 * 1000;
+    public int retrieveDevicesPerChunk = 10;
+    public int retrieveParallelism = 4;
+    //Library executor settings for async requests, applied when the executor is created
+    public int asyncCoreThreads = 4;
+    public int asyncQueueSize = 128;
+    public String asyncRejectionPolicy = "abort";
 
     /* private Constructor prevents any other
     * class from instantiating.
@@ -121,35 +181,55 @@ public class IotKit {
     private IotKit() {
     }
 
+    /**
+     * @return the library configuration, loaded on first use from any thread.
+     */
     public static IotKit getInstance() {
-        if (singletonInstance == null) {
-            singletonInstance = new IotKit();
-            try {
-                singletonInstance.parseJsonObjectFromFile("res/raw/config.json");
-            } catch (IOException ie) {
-                ie.printStackTrace();
-            } catch (JSONException je) {
-                je.printStackTrace();
-            }
-        }
-        return singletonInstance;
+        return InstanceHolder.INSTANCE;
+    }
+
+    //the class is initialized, and the configuration loaded, once on the first getInstance call
+    private static class InstanceHolder {
+        static final IotKit INSTANCE = load();
     }
 
-    private JSONObject createJsonObjectFromFile(String filePath) throws IOException, JSONException {
-        //loading json files from res/raw folder using class loader
-        InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(filePath);
-        BufferedReader streamReader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-        StringBuilder responseStrBuilder = new StringBuilder();
-        String inputString;
-        while ((inputString = streamReader.readLine()) != null)
-            responseStrBuilder.append(inputString);
-        JSONObject jsonObject = new JSONObject(responseStrBuilder.toString());
-        //Toast.makeText(jsonContext, "Response code :" + jsonObject, Toast.LENGTH_LONG).show();
-        return jsonObject;
+    private static IotKit load() {
+        IotKit objIotKit = new IotKit();
+        try {
+            objIotKit.parseConfigurationJsonObject(new JSONObject(readConfiguration()));
+        } catch (IOException ie) {
+            IotKitLog.e(TAG, "cannot read the IotKit configuration", ie);
+        } catch (JSONException je) {
+            IotKitLog.e(TAG, "invalid IotKit configuration", je);
+        } catch (RuntimeException re) {
+            //a failing getInstance would leave the class unusable for the life of the process
+            IotKitLog.e(TAG, "invalid IotKit configuration", re);
+        }
+        return objIotKit;
     }
 
-    private void parseJsonObjectFromFile(String filePath) throws IOException, JSONException {
-        this.parseConfigurationJsonObject(this.createJsonObjectFromFile(filePath));
+    //config.json as compiled into BuildConfig with -PcompiledConfig, or else the app's merged
+    //res/raw/config.json read through the class loader
+    private static String readConfiguration() throws IOException {
+        if (!BuildConfig.IOTKIT_CONFIG.isEmpty()) {
+            return BuildConfig.IOTKIT_CONFIG;
+        }
+        InputStream inputStream = IotKit.class.getClassLoader().getResourceAsStream("res/raw/config.json");
+        if (inputStream == null) {
+            throw new IOException("res/raw/config.json not found");
+        }
+        Reader reader = new InputStreamReader(inputStream, "UTF-8");
+        try {
+            StringBuilder configuration = new StringBuilder(8192);
+            char[] buffer = new char[4096];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                configuration.append(buffer, 0, count);
+            }
+            return configuration.toString();
+        } finally {
+            reader.close();
+        }
     }
 
     private void parseConfigurationJsonObject(JSONObject jsonObject) throws JSONException {
@@ -233,82 +313,302 @@ public class IotKit {
         advancedEnquiryOfData = apiJson.getString("advanced_data_inquiry");
         //aggregated report interface
         aggregatedReportInterface = apiJson.getString("aggregated_report_interface");
+        compileUrlTemplates(apiJson);
+        //http connection pool settings are optional
+        JSONObject httpClientJson = jsonObject.optJSONObject("http_client");
+        if (httpClientJson != null) {
+            maxTotalConnections = httpClientJson.optInt("max_total_connections", maxTotalConnections);
+            maxConnectionsPerRoute = httpClientJson.optInt("max_connections_per_route", maxConnectionsPerRoute);
+            keepAliveDuration = httpClientJson.optLong("keep_alive_ms", keepAliveDuration);
+            connectionIdleTimeout = httpClientJson.optLong("idle_timeout_ms", connectionIdleTimeout);
+            coalesceGetRequests = httpClientJson.optBoolean("coalesce_get_requests", coalesceGetRequests);
+            httpTransport = httpClientJson.optString("transport", httpTransport);
+        }
+        //timeout settings are optional
+        JSONObject timeoutsJson = jsonObject.optJSONObject("timeouts");
+        if (timeoutsJson != null) {
+            RequestTimeouts builtInTimeouts = defaultTimeouts;
+            try {
+                defaultTimeouts = parseTimeouts(timeoutsJson, defaultTimeouts);
+                JSONObject modulesJson = timeoutsJson.optJSONObject("modules");
+                if (modulesJson != null) {
+                    Iterator<?> moduleNames = modulesJson.keys();
+                    while (moduleNames.hasNext()) {
+                        String moduleName = moduleNames.next().toString();
+                        moduleTimeouts.put(moduleName,
+                                parseTimeouts(modulesJson.getJSONObject(moduleName), defaultTimeouts));
+                    }
+                }
+            } catch (IllegalArgumentException iae) {
+                IotKitLog.e(TAG, "invalid timeouts, using the defaults", iae);
+                defaultTimeouts = builtInTimeouts;
+                moduleTimeouts.clear();
+            }
+        }
+        //rate limits are optional
+        JSONObject rateLimitsJson = jsonObject.optJSONObject("rate_limits");
+        if (rateLimitsJson != null) {
+            try {
+                Iterator<?> groups = rateLimitsJson.keys();
+                while (groups.hasNext()) {
+                    String group = groups.next().toString();
+                    JSONObject groupJson = rateLimitsJson.getJSONObject(group);
+                    RateLimiter rateLimiter = new RateLimiter(group,
+                            groupJson.getDouble("requests_per_second"), groupJson.getInt("burst"));
+                    if (group.equals(RateLimiter.GROUP_MANAGEMENT)) {
+                        defaultRateLimiter = rateLimiter;
+                    }
+                    JSONArray apisJson = groupJson.optJSONArray("apis");
+                    for (int i = 0; apisJson != null && i < apisJson.length(); i++) {
+                        String apiPath = apiPaths.get(apisJson.getString(i));
+                        if (apiPath == null) {
+                            IotKitLog.w(TAG, "unknown api in rate_limits: %s", apisJson.getString(i));
+                            continue;
+                        }
+                        rateLimiters.put(urlTemplates.get(apiPath), rateLimiter);
+                    }
+                }
+                //token requests are not limited, so that a burst of management calls cannot hold
+                //up a token refresh until the token has expired
+                for (String apiPath : new String[]{newAuthToken, authTokenInfo}) {
+                    if (!rateLimiters.containsKey(urlTemplates.get(apiPath))) {
+                        unlimitedApis.add(urlTemplates.get(apiPath));
+                    }
+                }
+            } catch (IllegalArgumentException iae) {
+                IotKitLog.e(TAG, "invalid rate_limits, requests are not limited", iae);
+                rateLimiters.clear();
+                defaultRateLimiter = null;
+                unlimitedApis.clear();
+            }
+        }
+        //retry settings are optional
+        JSONObject retryJson = jsonObject.optJSONObject("retry");
+        if (retryJson != null) {
+            int maxAttempts = retryJson.optInt("max_attempts", retryMaxAttempts);
+            long initialBackoff = retryJson.optLong("initial_backoff_ms", retryInitialBackoff);
+            long maxBackoff = retryJson.optLong("max_backoff_ms", retryMaxBackoff);
+            double jitter = retryJson.optDouble("jitter", retryJitter);
+            int[] onCodes = retryOnCodes;
+            JSONArray retryOnCodesJson = retryJson.optJSONArray("retry_on_codes");
+            if (retryOnCodesJson != null) {
+                onCodes = new int[retryOnCodesJson.length()];
+                for (int i = 0; i < onCodes.length; i++) {
+                    onCodes[i] = retryOnCodesJson.getInt(i);
+                }
+            }
+            try {
+                //checked here, as RetryPolicy.getDefault is only built on the first request
+                new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, jitter, onCodes);
+                retryMaxAttempts = maxAttempts;
+                retryInitialBackoff = initialBackoff;
+                retryMaxBackoff = maxBackoff;
+                retryJitter = jitter;
+                retryOnCodes = onCodes;
+            } catch (IllegalArgumentException iae) {
+                IotKitLog.e(TAG, "invalid retry settings, using the defaults", iae);
+            }
+            retrySubmitData = retryJson.optBoolean("submit_data", retrySubmitData);
+        }
+        //token refresh settings are optional
+        JSONObject tokenRefreshJson = jsonObject.optJSONObject("token_refresh");
+        if (tokenRefreshJson != null) {
+            tokenRefreshLead = tokenRefreshJson.optLong("lead_ms", tokenRefreshLead);
+            tokenRefreshRetryDelay = tokenRefreshJson.optLong("retry_ms", tokenRefreshRetryDelay);
+        }
+        //chunked data retrieval settings are optional
+        JSONObject dataRetrievalJson = jsonObject.optJSONObject("data_retrieval");
+        if (dataRetrievalJson != null) {
+            retrieveChunkDuration = dataRetrievalJson.optLong("chunk_duration_ms", retrieveChunkDuration);
+            retrieveDevicesPerChunk = dataRetrievalJson.optInt("devices_per_chunk", retrieveDevicesPerChunk);
+            retrieveParallelism = dataRetrievalJson.optInt("parallelism", retrieveParallelism);
+        }
+        //async executor settings are optional
+        JSONObject asyncExecutorJson = jsonObject.optJSONObject("async_executor");
+        if (asyncExecutorJson != null) {
+            asyncCoreThreads = asyncExecutorJson.optInt("core_threads", asyncCoreThreads);
+            asyncQueueSize = asyncExecutorJson.optInt("queue_size", asyncQueueSize);
+            asyncRejectionPolicy = asyncExecutorJson.optString("rejection_policy", asyncRejectionPolicy);
+        }
+        //response cache settings are optional
+        JSONObject responseCacheJson = jsonObject.optJSONObject("response_cache");
+        if (responseCacheJson != null) {
+            responseCacheMemoryBytes = responseCacheJson.optInt("memory_max_bytes", responseCacheMemoryBytes);
+            responseCacheDiskBytes = responseCacheJson.optLong("disk_max_bytes", responseCacheDiskBytes);
+            JSONObject ttlJson = responseCacheJson.optJSONObject("ttl_ms");
+            if (ttlJson != null) {
+                Iterator<?> apiNames = ttlJson.keys();
+                while (apiNames.hasNext()) {
+                    String apiName = apiNames.next().toString();
+                    String apiPath = apiPaths.get(apiName);
+                    if (apiPath == null) {
+                        IotKitLog.w(TAG, "unknown api in response_cache: %s", apiName);
+                        continue;
+                    }
+                    responseCacheTtls.put(urlTemplates.get(apiPath), ttlJson.getLong(apiName));
+                }
+            }
+        }
+        //compression settings are optional
+        JSONObject compressionJson = jsonObject.optJSONObject("compression");
+        if (compressionJson != null) {
+            acceptGzipResponses = compressionJson.optBoolean("accept_gzip", acceptGzipResponses);
+            gzipRequestMinBytes = compressionJson.optInt("request_min_bytes", gzipRequestMinBytes);
+            JSONArray gzipApisJson = compressionJson.optJSONArray("gzip_request_apis");
+            for (int i = 0; gzipApisJson != null && i < gzipApisJson.length(); i++) {
+                String apiPath = apiPaths.get(gzipApisJson.getString(i));
+                if (apiPath == null) {
+                    IotKitLog.w(TAG, "unknown api in compression: %s", gzipApisJson.getString(i));
+                    continue;
+                }
+                gzipRequestApis.add(urlTemplates.get(apiPath));
+            }
+        }
         this.createBaseUrl();
     }
 
+    private static RequestTimeouts parseTimeouts(JSONObject timeoutsJson, RequestTimeouts defaults) {
+        return new RequestTimeouts(
+                timeoutsJson.optLong("connect_ms", defaults.getConnectTimeout()),
+                timeoutsJson.optLong("read_ms", defaults.getReadTimeout()),
+                timeoutsJson.optLong("deadline_ms", defaults.getDeadline()));
+    }
+
     private void createBaseUrl() {
         base_Url = ((is_Secure ? HTTPS_PROTOCOL : HTTP_PROTOCOL) + base_Url + ":" + String.valueOf(port));
         //Toast.makeText(jsonContext, "Response code :" + base_Url, Toast.LENGTH_LONG).show();
     }
 
     public String prepareUrl(String urlToAppend, LinkedHashMap urlSlugNameValues) {
-        String urlPrepared = null;
-        if (urlToAppend != null) {
-            if (Utilities.sharedPreferences == null) {
-                Log.w(TAG, "cannot find shared preferences object,not able to create URL");
-                return null;
-            }
-            //Handling Slug param replacement in URL
-            if (urlToAppend.contains("data_account_id")) {
-                if (urlSlugNameValues != null && urlSlugNameValues.containsKey("account_id")) {
-                    urlToAppend = urlToAppend.replace("data_account_id", urlSlugNameValues.get("account_id").toString());
-                } else {
-                    urlToAppend = urlToAppend.replace("data_account_id", Utilities.sharedPreferences.getString("account_id", ""));
-                }
-                //updating device id url-value
-                if (urlToAppend.contains("other_device_id")) {
-                    urlToAppend = urlToAppend.replace("other_device_id", urlSlugNameValues.get("other_device_id").toString());
-                }
-                if (urlToAppend.contains("device_id")) {
-                    urlToAppend = urlToAppend.replace("device_id", Utilities.sharedPreferences.getString("deviceId", ""));
-                }
-                if (urlToAppend.contains("cmp_catalog_id")) {
-                    urlToAppend = urlToAppend.replace("cmp_catalog_id", urlSlugNameValues.get("cmp_catalog_id").toString());
-                }
-                if (urlToAppend.contains("cid")) {
-                    String sensorId = null;
-                    if ((sensorId = Utilities.getSensorId(urlSlugNameValues.get("cname").toString())) != null) {
-                        urlToAppend = urlToAppend.replace("cid", sensorId);
-                    } else {
-                        Log.d(TAG, "No component found with this name-To Delete");
-                    }
-                    /*if (Utilities.sharedPreferences.getString("cname", "").
-                            contentEquals(urlSlugNameValues.get("cname").toString())) {
-                        urlToAppend = urlToAppend.replace("cid", Utilities.sharedPreferences.getString("cid", ""));
-                    } */
-                }
-                if (urlToAppend.contains("email")) {
-                    urlToAppend = urlToAppend.replace("email", urlSlugNameValues.get("email").toString());
-                }
-                if (urlToAppend.contains("rule_id")) {
-                    urlToAppend = urlToAppend.replace("rule_id", urlSlugNameValues.get("rule_id").toString());
-                }
-                if (urlToAppend.contains("alert_id")) {
-                    urlToAppend = urlToAppend.replace("alert_id", urlSlugNameValues.get("alert_id").toString());
+        if (urlToAppend == null) {
+            IotKitLog.w(TAG, "URL to prepare cannot be null");
+            return null;
+        }
+        UrlTemplate urlTemplate = urlTemplates.get(urlToAppend);
+        if (urlTemplate == null) {
+            //api path that is not part of config.json
+            urlTemplate = UrlTemplate.compile(urlToAppend);
+            urlTemplates.put(urlToAppend, urlTemplate);
+        }
+        //appending the module url to base url
+        return urlTemplate.expand(base_Url, urlSlugNameValues);
+    }
+
+    /**
+     * Register an interceptor that is called around every request of all the modules.
+     *
+     * @param interceptor the interceptor to add after the already registered ones.
+     */
+    public void addInterceptor(HttpInterceptor interceptor) {
+        if (interceptor == null) {
+            throw new IllegalArgumentException("interceptor cannot be null");
+        }
+        interceptors.add(interceptor);
+    }
+
+    public void removeInterceptor(HttpInterceptor interceptor) {
+        interceptors.remove(interceptor);
+    }
+
+    /**
+     * @return a snapshot of the registered interceptors in registration order.
+     */
+    public HttpInterceptor[] getInterceptors() {
+        return interceptors.toArray(NO_INTERCEPTORS);
+    }
+
+    /**
+     * Get the time limits of the requests of a module.
+     *
+     * @param moduleName the class name of the module, e.g. "AdvancedDataInquiry"; null for the
+     *                   defaults.
+     * @return the limits listed for the module in "timeouts" "modules", otherwise the defaults.
+     */
+    public RequestTimeouts getTimeouts(String moduleName) {
+        RequestTimeouts timeouts = moduleName != null ? moduleTimeouts.get(moduleName) : null;
+        return timeouts != null ? timeouts : defaultTimeouts;
+    }
+
+    /**
+     * Get the rate limiter of the endpoint group a url belongs to.
+     *
+     * @param url the full url of the request.
+     * @return the limiter of the group that lists the api path of the url, otherwise the limiter
+     * of the "management" group; null if the url is not rate limited. The auth token apis are
+     * only limited when a group lists them.
+     */
+    public RateLimiter getRateLimiter(String url) {
+        if (!rateLimiters.isEmpty() && url.startsWith(base_Url)) {
+            String path = url.substring(base_Url.length());
+            for (Map.Entry<UrlTemplate, RateLimiter> rateLimiter : rateLimiters.entrySet()) {
+                if (rateLimiter.getKey().matches(path)) {
+                    return rateLimiter.getValue();
                 }
-                if (urlToAppend.contains("invitee_user_id")) {
-                    urlToAppend = urlToAppend.replace("invitee_user_id", urlSlugNameValues.get("invitee_user_id").toString());
+            }
+            for (UrlTemplate unlimitedApi : unlimitedApis) {
+                if (unlimitedApi.matches(path)) {
+                    return null;
                 }
+            }
+        }
+        return defaultRateLimiter;
+    }
 
-            } else if (urlToAppend.contains("device_id")) {
-                if (urlSlugNameValues != null && urlSlugNameValues.containsKey("device_id")) {
-                    urlToAppend = urlToAppend.replace("device_id",  urlSlugNameValues.get("account_id").toString());
-                } else {
-                    urlToAppend = urlToAppend.replace("device_id", Utilities.sharedPreferences.getString("deviceId", ""));
-                }
-            } else if (urlToAppend.contains("user_id")) {
-                urlToAppend = urlToAppend.replace("user_id", urlSlugNameValues.get("user_id").toString());
-            } else if (urlToAppend.contains("email")) {
-                urlToAppend = urlToAppend.replace("email", urlSlugNameValues.get("email").toString());
+    /**
+     * Get how long a GET response of a url can be served from the response cache.
+     *
+     * @param url the full url of the request.
+     * @return time to live in milliseconds; 0 if the cached response must be revalidated on
+     * every use; -1 if the url is not cached.
+     */
+    public long getResponseCacheTtl(String url) {
+        if (responseCacheTtls.isEmpty() || !url.startsWith(base_Url)) {
+            return -1;
+        }
+        String path = url.substring(base_Url.length());
+        for (Map.Entry<UrlTemplate, Long> ttl : responseCacheTtls.entrySet()) {
+            if (ttl.getKey().matches(path)) {
+                return ttl.getValue();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether a request body should be sent gzip compressed.
+     *
+     * @param url       the full url of the request.
+     * @param bodyBytes size of the uncompressed body.
+     * @return true if the api path of the url is listed in "gzip_request_apis" and the body is
+     * at least "request_min_bytes" long.
+     */
+    public boolean shouldGzipRequest(String url, int bodyBytes) {
+        if (bodyBytes < gzipRequestMinBytes || gzipRequestApis.isEmpty() || !url.startsWith(base_Url)) {
+            return false;
+        }
+        String path = url.substring(base_Url.length());
+        for (UrlTemplate urlTemplate : gzipRequestApis) {
+            if (urlTemplate.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //compiles every api path of the configuration, nested objects included
+    private void compileUrlTemplates(JSONObject apiJson) throws JSONException {
+        Iterator<?> keys = apiJson.keys();
+        while (keys.hasNext()) {
+            String key = keys.next().toString();
+            JSONObject nestedJson = apiJson.optJSONObject(key);
+            if (nestedJson != null) {
+                compileUrlTemplates(nestedJson);
             } else {
-                Log.d(TAG, "URL with out slugs");
+                String apiPath = apiJson.getString(key);
+                urlTemplates.put(apiPath, UrlTemplate.compile(apiPath));
+                apiPaths.put(key, apiPath);
             }
         }
-        urlToAppend = urlToAppend.replaceAll("\\{", "");
-        urlToAppend = urlToAppend.replaceAll("\\}", "");
-        //appending the module url to base url
-        urlPrepared = base_Url + urlToAppend;
-        return urlPrepared;
     }
 
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.utils;
+
+import android.util.Log;
+
+import com.intel.iotkitlib.BuildConfig;
+
+import java.util.Locale;
+
+/**
+ * Logging for the library. Messages are given as format and arguments, and only formatted
+ * when the level is enabled.
+ * <p/>
+ * Verbose and debug logging only exist in debug builds: {@link #DEBUG} is a compile time
+ * constant from the build type, so a release build drops every {@code if (IotKitLog.DEBUG)}
+ * block and the verbose and debug calls do nothing.
+ */
+public final class IotKitLog {
+    public static final boolean DEBUG = BuildConfig.HTTP_LOGGING;
+
+    private static final int MAX_BODY_LENGTH = 1024;
+    private static final String REDACTED = "<redacted>";
+
+    private static volatile int minLevel = Log.VERBOSE;
+
+    private IotKitLog() {
+    }
+
+    /**
+     * Set the lowest level that is logged.
+     *
+     * @param level one of the android.util.Log levels, such as Log.INFO.
+     */
+    public static void setLevel(int level) {
+        minLevel = level;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel && (DEBUG || level > Log.DEBUG);
+    }
+
+    public static void v(String tag, String format, Object... args) {
+        if (DEBUG && isLoggable(Log.VERBOSE)) {
+            Log.v(tag, format(format, args));
+        }
+    }
+
+    public static void d(String tag, String format, Object... args) {
+        if (DEBUG && isLoggable(Log.DEBUG)) {
+            Log.d(tag, format(format, args));
+        }
+    }
+
+    public static void i(String tag, String format, Object... args) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, format(format, args));
+        }
+    }
+
+    public static void w(String tag, String format, Object... args) {
+        if (isLoggable(Log.WARN)) {
+            Log.w(tag, format(format, args));
+        }
+    }
+
+    public static void e(String tag, String format, Object... args) {
+        if (isLoggable(Log.ERROR)) {
+            Log.e(tag, format(format, args));
+        }
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        if (isLoggable(Log.ERROR)) {
+            Log.e(tag, message, throwable);
+        }
+    }
+
+    /**
+     * @return the header value to log; credentials are never logged.
+     */
+    public static String headerValue(String name, String value) {
+        if (IotKit.HEADER_AUTHORIZATION.equalsIgnoreCase(name)) {
+            return REDACTED;
+        }
+        return value;
+    }
+
+    /**
+     * @return the body to log, cut to a bounded length.
+     */
+    public static String body(String body) {
+        if (body == null || body.length() <= MAX_BODY_LENGTH) {
+            return body;
+        }
+        return body.substring(0, MAX_BODY_LENGTH) + "... (" + body.length() + " chars)";
+    }
+
+    private static String format(String format, Object... args) {
+        if (args == null || args.length == 0) {
+            return format;
+        }
+        return String.format(Locale.US, format, args);
+    }
+}
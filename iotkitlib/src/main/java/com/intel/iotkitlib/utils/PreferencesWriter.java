@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.utils;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes changes to the library shared preferences on a background thread. Changes queued
+ * while a write is pending are coalesced into one commit, so storing the token, account and
+ * component details after a response costs a single disk write and never blocks the caller.
+ */
+final class PreferencesWriter {
+    private static final String TAG = "PreferencesWriter";
+
+    //one writer thread for the library, it goes away when idle
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "IotKit preferences");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final SharedPreferences sharedPreferences;
+    //serializes the commits, so that batches reach the disk in the order they were queued
+    private final Object writeLock = new Object();
+    //key to new value, a null value removes the key
+    private Map<String, String> pending = new LinkedHashMap<String, String>();
+    private boolean clearPending;
+    private boolean writeScheduled;
+    //changes taken by the write in progress, until they are committed
+    private Map<String, String> writing = Collections.emptyMap();
+    private boolean clearWriting;
+
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+
+    PreferencesWriter(SharedPreferences sharedPreferences) {
+        this.sharedPreferences = sharedPreferences;
+    }
+
+    void putString(String key, String value) {
+        if (value == null) {
+            //same as SharedPreferences.Editor.putString
+            remove(key);
+            return;
+        }
+        enqueue(key, value);
+    }
+
+    void remove(String key) {
+        enqueue(key, null);
+    }
+
+    //drops all values, including the ones queued before
+    synchronized void clear() {
+        pending.clear();
+        clearPending = true;
+        schedule();
+    }
+
+    /**
+     * @return the values as they are once the queued changes are written, without writing them.
+     */
+    synchronized Map<String, ?> getAll() {
+        Map<String, Object> values = new HashMap<String, Object>();
+        if (!clearPending) {
+            if (!clearWriting) {
+                values.putAll(sharedPreferences.getAll());
+            }
+            apply(values, writing);
+        }
+        apply(values, pending);
+        return values;
+    }
+
+    private static void apply(Map<String, Object> values, Map<String, String> changes) {
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                values.remove(change.getKey());
+            } else {
+                values.put(change.getKey(), change.getValue());
+            }
+        }
+    }
+
+    /**
+     * Write the queued changes now, on the calling thread.
+     */
+    void flush() {
+        write();
+    }
+
+    private synchronized void enqueue(String key, String value) {
+        //keep the latest value at the end, so the batch reflects the order of the changes
+        pending.remove(key);
+        pending.put(key, value);
+        schedule();
+    }
+
+    //must be called holding the lock
+    private void schedule() {
+        if (!writeScheduled) {
+            writeScheduled = true;
+            executor.execute(writeTask);
+        }
+    }
+
+    private void write() {
+        synchronized (writeLock) {
+            Map<String, String> changes;
+            boolean clear;
+            synchronized (this) {
+                changes = pending;
+                clear = clearPending;
+                pending = new LinkedHashMap<String, String>();
+                clearPending = false;
+                writeScheduled = false;
+                writing = changes;
+                clearWriting = clear;
+            }
+            if (!clear && changes.isEmpty()) {
+                return;
+            }
+            SharedPreferences.Editor editor = sharedPreferences.edit();
+            //clear is done before the other changes of the same commit
+            if (clear) {
+                editor.clear();
+            }
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                if (change.getValue() == null) {
+                    editor.remove(change.getKey());
+                } else {
+                    editor.putString(change.getKey(), change.getValue());
+                }
+            }
+            if (!editor.commit()) {
+                Log.w(TAG, "failed to write " + changes.size() + " values to shared preferences");
+            }
+            synchronized (this) {
+                writing = Collections.emptyMap();
+                clearWriting = false;
+            }
+        }
+    }
+}
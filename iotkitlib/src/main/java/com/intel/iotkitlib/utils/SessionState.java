@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.utils;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * In memory copy of the session values that are read on nearly every request: the account,
+ * device, user and the auth and device tokens. Requests read the volatile fields here instead of
+ * looking the values up in shared preferences; the setters write the value through to shared
+ * preferences so that the session survives a restart.
+ * <p/>
+ * The values are loaded from shared preferences by {@link Utilities#createSharedPreferences};
+ * they must be changed through this class, as the shared preferences are only read on load.
+ * <p/>
+ * Each token is kept together with the request headers that carry it, built once when the
+ * token changes; a request reads the token and its headers with one volatile read, so it never
+ * sends a header built from an older token.
+ */
+public final class SessionState {
+    private static final String TAG = "SessionState";
+
+    // shared preferences keys
+    public static final String KEY_ACCOUNT_ID = "account_id";
+    public static final String KEY_DEVICE_ID = "deviceId";
+    public static final String KEY_AUTH_TOKEN = "auth_token";
+    public static final String KEY_DEVICE_TOKEN = "device_token";
+    public static final String KEY_USER_ID = "user_id";
+    public static final String KEY_AUTH_TOKEN_EXPIRY = "expiry";
+
+    //formats of the "exp" value in the token info
+    private static final String[] EXPIRY_FORMATS = {"yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", "yyyy-MM-dd'T'HH:mm:ss'Z'"};
+
+    private static final SessionState instance = new SessionState();
+
+    private volatile boolean loaded;
+    private volatile String accountId = "";
+    private volatile String deviceId = "";
+    private volatile Credential authCredential = new Credential("", 0);
+    private volatile Credential deviceCredential = new Credential("", 0);
+    private volatile String userId = "";
+
+    private SessionState() {
+    }
+
+    public static SessionState getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return true once the values have been loaded from shared preferences.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+        persist(KEY_ACCOUNT_ID, accountId);
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+        persist(KEY_DEVICE_ID, deviceId);
+    }
+
+    public String getAuthToken() {
+        return authCredential.token;
+    }
+
+    /**
+     * @return the content type and bearer authorization headers for the auth token. The list is
+     * shared between requests and cannot be modified.
+     */
+    public List<NameValuePair> getAuthTokenHeaders() {
+        return authCredential.headers;
+    }
+
+    /**
+     * Replace the auth token. The expiry of the new token is unknown until
+     * {@link #setAuthTokenExpiry} is called.
+     */
+    public synchronized void setAuthToken(String authToken) {
+        authCredential = new Credential(authToken, 0);
+        persist(KEY_AUTH_TOKEN, authToken);
+        persist(KEY_AUTH_TOKEN_EXPIRY, null);
+    }
+
+    /**
+     * @return the time the auth token expires, in milliseconds since the epoch; 0 if unknown.
+     */
+    public long getAuthTokenExpiry() {
+        return authCredential.expiry;
+    }
+
+    /**
+     * @param expiry the "exp" value of the token info: seconds since the epoch, or a UTC time
+     *               such as "2014-11-21T12:10:15.594Z".
+     */
+    public synchronized void setAuthTokenExpiry(String expiry) {
+        authCredential = authCredential.withExpiry(parseExpiry(expiry));
+        persist(KEY_AUTH_TOKEN_EXPIRY, expiry);
+    }
+
+    public String getDeviceToken() {
+        return deviceCredential.token;
+    }
+
+    /**
+     * @return the content type and bearer authorization headers for the device token. The list
+     * is shared between requests and cannot be modified.
+     */
+    public List<NameValuePair> getDeviceTokenHeaders() {
+        return deviceCredential.headers;
+    }
+
+    public synchronized void setDeviceToken(String deviceToken) {
+        deviceCredential = new Credential(deviceToken, 0);
+        persist(KEY_DEVICE_TOKEN, deviceToken);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+        persist(KEY_USER_ID, userId);
+    }
+
+    /**
+     * Forget all session values. The caller clears the shared preferences.
+     */
+    public synchronized void clear() {
+        accountId = "";
+        deviceId = "";
+        authCredential = new Credential("", 0);
+        deviceCredential = new Credential("", 0);
+        userId = "";
+    }
+
+    //called when the shared preferences are (re)created
+    synchronized void load(SharedPreferences sharedPreferences) {
+        accountId = sharedPreferences.getString(KEY_ACCOUNT_ID, "");
+        deviceId = sharedPreferences.getString(KEY_DEVICE_ID, "");
+        authCredential = new Credential(sharedPreferences.getString(KEY_AUTH_TOKEN, ""),
+                parseExpiry(sharedPreferences.getString(KEY_AUTH_TOKEN_EXPIRY, null)));
+        deviceCredential = new Credential(sharedPreferences.getString(KEY_DEVICE_TOKEN, ""), 0);
+        userId = sharedPreferences.getString(KEY_USER_ID, "");
+        loaded = true;
+    }
+
+    static long parseExpiry(String expiry) {
+        if (expiry == null || expiry.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(expiry) * 1000;
+        } catch (NumberFormatException nfe) {
+            //not seconds, try a date
+        }
+        for (String format : EXPIRY_FORMATS) {
+            SimpleDateFormat dateFormat = new SimpleDateFormat(format, Locale.US);
+            dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+            try {
+                return dateFormat.parse(expiry).getTime();
+            } catch (ParseException pe) {
+                //try the next format
+            }
+        }
+        Log.w(TAG, "cannot parse token expiry " + expiry);
+        return 0;
+    }
+
+    private static void persist(String key, String value) {
+        if (!Utilities.storePreference(key, value)) {
+            Log.w(TAG, key + " is kept in memory only");
+        }
+    }
+
+    //a token with its expiry and the request headers that carry it, replaced as a whole
+    private static final class Credential {
+        final String token;
+        final long expiry;
+        final List<NameValuePair> headers;
+
+        Credential(String token, long expiry) {
+            this(token, expiry, Collections.unmodifiableList(Arrays.<NameValuePair>asList(
+                    new BasicNameValuePair(IotKit.HEADER_CONTENT_TYPE_NAME, IotKit.HEADER_CONTENT_TYPE_JSON),
+                    new BasicNameValuePair(IotKit.HEADER_AUTHORIZATION, IotKit.HEADER_AUTHORIZATION_BEARER + " " + token))));
+        }
+
+        private Credential(String token, long expiry, List<NameValuePair> headers) {
+            this.token = token;
+            this.expiry = expiry;
+            this.headers = headers;
+        }
+
+        Credential withExpiry(long expiry) {
+            return new Credential(token, expiry, headers);
+        }
+    }
+}
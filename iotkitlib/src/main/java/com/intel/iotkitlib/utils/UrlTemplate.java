@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2014 Intel Corporation.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.intel.iotkitlib.utils;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Api path from config.json, split once into literal segments and typed slots for the
+ * "{slug}" placeholders, so that a url is built in a single pass and a slug value can never
+ * be substituted into another placeholder or into the literal part of the path.
+ */
+public class UrlTemplate {
+    private static final String TAG = "UrlTemplate";
+
+    // slot kinds
+    private static final int SLOT_ACCOUNT_ID = 0;
+    private static final int SLOT_DEVICE_ID = 1;
+    private static final int SLOT_COMPONENT_ID = 2;
+    private static final int SLOT_SLUG = 3;
+
+    private final String template;
+    // literals[i] is followed by slot i; the last literal has no slot after it
+    private final String[] literals;
+    private final int[] slotKinds;
+    private final String[] slotNames;
+    private final int literalLength;
+
+    private UrlTemplate(String template, List<String> literals, List<String> slotNames) {
+        this.template = template;
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.slotNames = slotNames.toArray(new String[slotNames.size()]);
+        this.slotKinds = new int[this.slotNames.length];
+        for (int i = 0; i < this.slotNames.length; i++) {
+            this.slotKinds[i] = slotKind(this.slotNames[i]);
+        }
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parse an api path such as "/v1/api/accounts/{data_account_id}/devices/{other_device_id}".
+     *
+     * @param template the api path with "{slug}" placeholders.
+     * @return the compiled template.
+     */
+    public static UrlTemplate compile(String template) {
+        List<String> literals = new ArrayList<String>();
+        List<String> slotNames = new ArrayList<String>();
+        int start = 0;
+        int open;
+        while ((open = template.indexOf('{', start)) >= 0) {
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            literals.add(template.substring(start, open));
+            slotNames.add(template.substring(open + 1, close));
+            start = close + 1;
+        }
+        literals.add(template.substring(start));
+        return new UrlTemplate(template, literals, slotNames);
+    }
+
+    private static int slotKind(String slotName) {
+        if (slotName.equals("data_account_id")) {
+            return SLOT_ACCOUNT_ID;
+        } else if (slotName.equals("device_id")) {
+            return SLOT_DEVICE_ID;
+        } else if (slotName.equals("cid")) {
+            return SLOT_COMPONENT_ID;
+        }
+        return SLOT_SLUG;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Build the full url for this api path.
+     * <p/>
+     * "data_account_id" and "device_id" are taken from the slug values "account_id" and
+     * "device_id" when given, otherwise from the stored account and device; "cid" is the stored
+     * component id for the slug value "cname"; any other placeholder is taken from the slug
+     * value of the same name.
+     *
+     * @param baseUrl          protocol, host and port to prepend.
+     * @param urlSlugNameValues slug values for the placeholders; can be null.
+     * @return the url, or null if a placeholder cannot be resolved.
+     */
+    public String expand(String baseUrl, Map<?, ?> urlSlugNameValues) {
+        StringBuilder url = new StringBuilder(baseUrl.length() + literalLength + 48 * slotKinds.length);
+        url.append(baseUrl);
+        for (int i = 0; i < slotKinds.length; i++) {
+            url.append(literals[i]);
+            String value = resolveSlot(i, urlSlugNameValues);
+            if (value == null) {
+                Log.w(TAG, "no value for {" + slotNames[i] + "}, not able to create URL for " + template);
+                return null;
+            }
+            url.append(value);
+        }
+        url.append(literals[literals.length - 1]);
+        return url.toString();
+    }
+
+    /**
+     * Check whether a url path was built from this template. A placeholder matches one
+     * non-empty path segment without "/" or "?".
+     *
+     * @param path the path and query of the url, without protocol, host and port.
+     * @return true if the path matches the template.
+     */
+    public boolean matches(String path) {
+        if (!path.startsWith(literals[0])) {
+            return false;
+        }
+        int position = literals[0].length();
+        for (int i = 0; i < slotKinds.length; i++) {
+            String literal = literals[i + 1];
+            int end = literal.isEmpty() ? path.length() : path.indexOf(literal, position + 1);
+            if (end <= position) {
+                return false;
+            }
+            for (int c = position; c < end; c++) {
+                char ch = path.charAt(c);
+                if (ch == '/' || ch == '?') {
+                    return false;
+                }
+            }
+            position = end + literal.length();
+        }
+        return position == path.length();
+    }
+
+    private String resolveSlot(int slot, Map<?, ?> urlSlugNameValues) {
+        switch (slotKinds[slot]) {
+            case SLOT_ACCOUNT_ID:
+                if (urlSlugNameValues != null && urlSlugNameValues.get("account_id") != null) {
+                    return urlSlugNameValues.get("account_id").toString();
+                }
+                return storedValue("account_id", SessionState.getInstance().getAccountId());
+            case SLOT_DEVICE_ID:
+                if (urlSlugNameValues != null && urlSlugNameValues.get("device_id") != null) {
+                    return urlSlugNameValues.get("device_id").toString();
+                }
+                return storedValue("deviceId", SessionState.getInstance().getDeviceId());
+            case SLOT_COMPONENT_ID:
+                if (urlSlugNameValues == null || urlSlugNameValues.get("cname") == null) {
+                    return null;
+                }
+                String componentId = Utilities.getSensorId(urlSlugNameValues.get("cname").toString());
+                if (componentId == null) {
+                    Log.d(TAG, "No component found with this name");
+                }
+                return componentId;
+            default:
+                if (urlSlugNameValues == null || urlSlugNameValues.get(slotNames[slot]) == null) {
+                    return null;
+                }
+                return urlSlugNameValues.get(slotNames[slot]).toString();
+        }
+    }
+
+    private static String storedValue(String key, String value) {
+        if (!SessionState.getInstance().isLoaded()) {
+            Log.w(TAG, "cannot find shared preferences object, not able to read " + key);
+            return null;
+        }
+        return value;
+    }
+}
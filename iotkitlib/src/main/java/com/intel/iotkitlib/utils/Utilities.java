@@ -32,11 +32,12 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class Utilities {
@@ -44,6 +45,10 @@ public class Utilities {
     public static WeakReference<Context> contextWeakReference;
     public static SharedPreferences sharedPreferences;
     public static SharedPreferences.Editor editor;
+    private static volatile PreferencesWriter preferencesWriter;
+    private static final String SENSOR_KEY_PREFIX = "sensor-";
+    //component name to component id, loaded from shared preferences on first lookup
+    private static volatile Map<String, String> sensorIndex;
 
     public static List<NameValuePair> addHttpHeaders(List<NameValuePair> headers, String headerName, String headerValue) {
         //add header name-value pair
@@ -57,29 +62,19 @@ public class Utilities {
     }
 
     public static List<NameValuePair> createBasicHeadersWithBearerToken() {
-        if (sharedPreferences == null) {
+        if (!SessionState.getInstance().isLoaded()) {
             Log.w(TAG, "cannot find shared preferences object, not able to take bearer token");
             return null;
         }
-        //building header value(need persistent to store to take auth token at run time)
-        String bearerToken = IotKit.HEADER_AUTHORIZATION_BEARER + " " + sharedPreferences.getString("auth_token", "");
-        return Utilities.addHttpHeaders(
-                Utilities.addHttpHeaders(Utilities.createEmptyListForHeaders(), IotKit.HEADER_CONTENT_TYPE_NAME, IotKit.HEADER_CONTENT_TYPE_JSON),
-                IotKit.HEADER_AUTHORIZATION,
-                bearerToken);
+        return new ArrayList<NameValuePair>(SessionState.getInstance().getAuthTokenHeaders());
     }
 
     public static List<NameValuePair> createBasicHeadersWithDeviceToken() {
-        if (sharedPreferences == null) {
+        if (!SessionState.getInstance().isLoaded()) {
             Log.w(TAG, "cannot find shared preferences object, not able to take device token");
             return null;
         }
-        //building header value(need persistent to store to take auth token at run time)
-        String deviceToken = IotKit.HEADER_AUTHORIZATION_BEARER + " " + sharedPreferences.getString("device_token", "");
-        return Utilities.addHttpHeaders(
-                Utilities.addHttpHeaders(Utilities.createEmptyListForHeaders(), IotKit.HEADER_CONTENT_TYPE_NAME, IotKit.HEADER_CONTENT_TYPE_JSON),
-                IotKit.HEADER_AUTHORIZATION,
-                deviceToken);
+        return new ArrayList<NameValuePair>(SessionState.getInstance().getDeviceTokenHeaders());
     }
 
     //function for testing update-account(values hard-coded)
@@ -97,7 +92,7 @@ public class Utilities {
             Log.d(TAG, "shared pref object is null,cannot create body for update account");
             return null;
         }
-        updateAccountJson.put("id", Utilities.sharedPreferences.getString("account_id", ""));
+        updateAccountJson.put("id", SessionState.getInstance().getAccountId());
         //adding attributes jsonObject
         JSONObject attributesJson = new JSONObject();
         List<NameValuePair> accountAttributeList = new LinkedList<NameValuePair>();
@@ -120,40 +115,128 @@ public class Utilities {
                     ("com.intel.IOT.AndroidIOTLib.SharedPrefs.sharedPreferences",
                             contextWeakReference.get().getApplicationContext().MODE_PRIVATE);
             editor = sharedPreferences.edit();
-            editor.commit();
+            if (preferencesWriter != null) {
+                preferencesWriter.flush();
+            }
+            preferencesWriter = new PreferencesWriter(sharedPreferences);
+            invalidateSensorIndex();
+            SessionState.getInstance().load(sharedPreferences);
+
+        }
+    }
+
+    /**
+     * Store a value in the library shared preferences. The value is written on a background
+     * thread, together with the other values stored before the write happens.
+     *
+     * @param key   the name of the value.
+     * @param value the value to store; null removes the value.
+     * @return false if the shared preferences have not been created.
+     */
+    public static boolean storePreference(String key, String value) {
+        PreferencesWriter writer = preferencesWriter;
+        if (writer == null) {
+            Log.w(TAG, "cannot find shared preferences object, not able to store " + key);
+            return false;
+        }
+        writer.putString(key, value);
+        return true;
+    }
+
+    /**
+     * Remove all values from the library shared preferences, on a background thread.
+     *
+     * @return false if the shared preferences have not been created.
+     */
+    public static boolean clearPreferences() {
+        PreferencesWriter writer = preferencesWriter;
+        if (writer == null) {
+            Log.w(TAG, "cannot find shared preferences object, not able to clear it");
+            return false;
+        }
+        writer.clear();
+        return true;
+    }
 
+    /**
+     * Write the stored values that are still waiting for the background thread, before this
+     * method returns. Call it before the application process goes away.
+     */
+    public static void flushPreferences() {
+        PreferencesWriter writer = preferencesWriter;
+        if (writer != null) {
+            writer.flush();
         }
     }
 
     public static Map.Entry<String, ?> getSensorMatch(String componentName) {
-        Boolean found = false;
-        Map.Entry<String, ?> sensorMatch = null;
-        Map<String, ?> preferencesAll = Utilities.sharedPreferences.getAll();
-        for (Map.Entry<String, ?> entry : preferencesAll.entrySet()) {
-            Log.d(TAG, entry.getKey() + " :" + entry.getValue().toString());
-            if (entry.getKey().contains("sensor")) {
-                StringTokenizer tokenizer = new StringTokenizer(entry.getKey(), "-");
-                while (tokenizer.hasMoreElements()) {
-                    if (tokenizer.nextToken().equals(componentName)) {
-                        Log.d(TAG, "sensor/component found in shared preferences");
-                        found = true;
-                        sensorMatch = entry;
-                        break;
-                    }
-                }
-                if (found) {
-                    break;
-                }
-            }
+        String sensorId = getSensorId(componentName);
+        if (sensorId == null) {
+            return null;
         }
-        return sensorMatch;
+        return new AbstractMap.SimpleImmutableEntry<String, String>(SENSOR_KEY_PREFIX + componentName, sensorId);
     }
 
     public static String getSensorId(String componentName) {
-        Map.Entry<String, ?> sensorMatch = null;
-        if ((sensorMatch = getSensorMatch(componentName)) != null) {
-            return sensorMatch.getValue().toString();
+        if (componentName == null) {
+            return null;
+        }
+        Map<String, String> index = sensorIndex;
+        if (index == null) {
+            index = loadSensorIndex();
+        }
+        return index.get(componentName);
+    }
+
+    //stores the component id for the component name, in shared preferences and in the index
+    public static synchronized void storeSensorId(String componentName, String componentId) {
+        if (!storePreference(SENSOR_KEY_PREFIX + componentName, componentId)) {
+            Log.d(TAG, "shared prefs editor object is null, cannot store component");
+            return;
+        }
+        Map<String, String> index = sensorIndex;
+        if (index != null) {
+            index.put(componentName, componentId);
+        }
+    }
+
+    //removes the component, returns false if it was not stored
+    public static synchronized boolean removeSensorId(String componentName) {
+        if (getSensorId(componentName) == null || !storePreference(SENSOR_KEY_PREFIX + componentName, null)) {
+            return false;
+        }
+        Map<String, String> index = sensorIndex;
+        if (index != null) {
+            index.remove(componentName);
+        }
+        return true;
+    }
+
+    //drops the index, it is rebuilt from shared preferences on next lookup
+    public static void invalidateSensorIndex() {
+        synchronized (Utilities.class) {
+            sensorIndex = null;
+        }
+    }
+
+    //component names are stored with the "sensor-" prefix, the index maps name to id
+    private static synchronized Map<String, String> loadSensorIndex() {
+        if (sensorIndex != null) {
+            return sensorIndex;
+        }
+        Map<String, String> index = new ConcurrentHashMap<String, String>();
+        PreferencesWriter writer = preferencesWriter;
+        if (writer == null) {
+            Log.d(TAG, "shared prefs object is null, component index is empty");
+            return index;
+        }
+        //includes the components stored but not yet written, without a commit under the lock
+        for (Map.Entry<String, ?> entry : writer.getAll().entrySet()) {
+            if (entry.getKey().startsWith(SENSOR_KEY_PREFIX) && entry.getValue() != null) {
+                index.put(entry.getKey().substring(SENSOR_KEY_PREFIX.length()), entry.getValue().toString());
+            }
         }
-        return null;
+        sensorIndex = index;
+        return index;
     }
 }